@@ -11,7 +11,9 @@ import java.awt.geom.Ellipse2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import javax.swing.*;
@@ -165,30 +167,41 @@ class ProgressListener implements PropertyChangeListener {
 }
 
 class LoadingLabel extends JLabel {
+  private static final int PERIOD = 100;
   private final transient AnimeIcon icon = new AnimeIcon();
-  private final Timer animator = new Timer(100, e -> {
-    icon.next();
-    repaint();
-  });
+  // private final Timer animator = new Timer(100, e -> {
+  //   icon.next();
+  //   repaint();
+  // });
 
   protected LoadingLabel() {
     super();
     setIcon(icon);
     addHierarchyListener(e -> {
       if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !e.getComponent().isDisplayable()) {
-        animator.stop();
+        // animator.stop();
+        AnimationClock.getInstance().stop(this);
       }
     });
   }
 
   public void startAnimation() {
     icon.setRunning(true);
-    animator.start();
+    // animator.start();
+    AnimationClock clock = AnimationClock.getInstance();
+    clock.start(this, PERIOD, steps -> {
+      for (int i = 0; i < steps; i++) {
+        icon.next();
+      }
+      clock.repaint(this);
+      return true;
+    });
   }
 
   public void stopAnimation() {
     icon.setRunning(false);
-    animator.stop();
+    // animator.stop();
+    AnimationClock.getInstance().stop(this);
   }
 }
 
@@ -424,3 +437,104 @@ class AnimeIcon implements Icon {
 //     this.running = running;
 //   }
 // }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
@@ -14,11 +14,8 @@ import java.time.temporal.WeekFields;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.IntStream;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
@@ -35,7 +32,10 @@ public final class MainPanel extends JPanel {
         new ContributionIcon(color.darker()),
         new ContributionIcon(color.darker().darker()));
 
-    JList<Contribution> weekList = new JList<Contribution>(new CalendarViewListModel(currentLocalDate)) {
+    Icon futureIcon = new ContributionIcon(Color.WHITE);
+    long today = currentLocalDate.toEpochDay();
+    CalendarViewListModel model = new CalendarViewListModel(currentLocalDate);
+    JList<Contribution> weekList = new JList<Contribution>(model) {
       @Override public void updateUI() {
         setCellRenderer(null);
         super.updateUI();
@@ -46,10 +46,15 @@ public final class MainPanel extends JPanel {
         ListCellRenderer<? super Contribution> renderer = getCellRenderer();
         setCellRenderer((list, value, index, isSelected, cellHasFocus) -> {
           JLabel l = (JLabel) renderer.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-          if (value.date.isAfter(currentLocalDate)) {
-            l.setIcon(new ContributionIcon(Color.WHITE));
+          // if (value.date.isAfter(currentLocalDate)) {
+          //   l.setIcon(new ContributionIcon(Color.WHITE));
+          // } else {
+          //   l.setIcon(activityIcons.get(value.activity));
+          // }
+          if (model.getEpochDay(index) > today || value.getActivity() == CalendarViewListModel.NO_DATA) {
+            l.setIcon(futureIcon);
           } else {
-            l.setIcon(activityIcons.get(value.activity));
+            l.setIcon(activityIcons.get(value.getActivity()));
           }
           return l;
         });
@@ -65,12 +70,32 @@ public final class MainPanel extends JPanel {
           return null;
         }
         Contribution value = getModel().getElementAt(idx);
-        String actTxt = value.activity == 0 ? "No" : Objects.toString(value.activity);
-        return actTxt + " contribution on " + value.date.toString();
+        String actTxt = value.getActivity() <= 0 ? "No" : Objects.toString(value.getActivity());
+        return actTxt + " contribution on " + model.getDate(idx).toString();
       }
     };
     Font font = weekList.getFont().deriveFont(CELL_SIZE.height - 1f);
 
+    // simulates a feed delivering the daily activity in the background,
+    // the model batches the updates into a few fireContentsChanged calls
+    Thread producer = new Thread(() -> {
+      Random rnd = new Random();
+      long start = model.getStartDate().toEpochDay();
+      for (int i = 0; i < model.getSize(); i++) {
+        model.setActivity(start + i, rnd.nextInt(5));
+        if (i % DayOfWeek.values().length == 0) {
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }, "producer");
+    producer.setDaemon(true);
+    producer.start();
+
     Box box = Box.createHorizontalBox();
     box.add(makeLabel("Less", font));
     box.add(Box.createHorizontalStrut(2));
@@ -85,7 +110,7 @@ public final class MainPanel extends JPanel {
     p.setBackground(Color.WHITE);
 
     GridBagConstraints c = new GridBagConstraints();
-    p.add(makeWeekCalendar(weekList, font), c);
+    p.add(makeWeekCalendar(weekList, model, font), c);
 
     c.insets = new Insets(10, 0, 2, 0);
     c.gridy = 1;
@@ -98,7 +123,7 @@ public final class MainPanel extends JPanel {
     setPreferredSize(new Dimension(320, 240));
   }
 
-  private static Component makeWeekCalendar(JList<Contribution> weekList, Font font) {
+  private static Component makeWeekCalendar(JList<Contribution> weekList, CalendarViewListModel model, Font font) {
     Locale l = Locale.getDefault();
     WeekFields weekFields = WeekFields.of(l);
 
@@ -129,7 +154,7 @@ public final class MainPanel extends JPanel {
     c.gridy = 1;
     c.gridwidth = 3; // use 3 columns to display the name of the month
     for (c.gridx = 0; c.gridx < CalendarViewListModel.WEEK_VIEW - c.gridwidth + 1; c.gridx++) {
-      LocalDate date = weekList.getModel().getElementAt(c.gridx * DayOfWeek.values().length).date;
+      LocalDate date = model.getDate(c.gridx * DayOfWeek.values().length);
       // int weekNumberOfMonth = date.get(weekFields.weekOfMonth());
       // System.out.println(weekNumberOfMonth);
       // ignore WeekFields#getMinimalDaysInFirstWeek()
@@ -192,39 +217,128 @@ public final class MainPanel extends JPanel {
   }
 }
 
-class Contribution {
-  public final LocalDate date;
-  public final int activity;
+// An immutable activity level. There is one shared instance per level, see
+// valueOf(int), and the day of a cell is given by its index in the model.
+final class Contribution {
+  private static final Contribution[] LEVELS = new Contribution[Byte.MAX_VALUE - CalendarViewListModel.NO_DATA + 1];
+  private final int activity;
 
-  protected Contribution(LocalDate date, int activity) {
-    this.date = date;
+  static {
+    for (int i = 0; i < LEVELS.length; i++) {
+      LEVELS[i] = new Contribution(i + CalendarViewListModel.NO_DATA);
+    }
+  }
+
+  private Contribution(int activity) {
     this.activity = activity;
   }
+
+  public static Contribution valueOf(int activity) {
+    return LEVELS[activity - CalendarViewListModel.NO_DATA];
+  }
+
+  public int getActivity() {
+    return activity;
+  }
+
+  @Override public String toString() {
+    return ""; // the cells show only the icon
+  }
 }
 
+// Keeps one activity level per day in a byte array indexed by the epoch day,
+// so ten years of daily data take less than 4KB. getElementAt() returns the
+// shared immutable Contribution of the level, so it does not allocate.
 class CalendarViewListModel extends AbstractListModel<Contribution> {
   public static final int WEEK_VIEW = 27;
-  private final LocalDate startDate;
-  private final int displayDays;
-  private final Map<LocalDate, Integer> contributionActivity;
+  public static final int NO_DATA = -1;
+  public static final int MAX_ACTIVITY = Byte.MAX_VALUE;
+  private final long startEpochDay;
+  private final byte[] activities;
+  private final Object lock = new Object();
+  private int dirtyFirst = Integer.MAX_VALUE;
+  private int dirtyLast = -1;
+  // private final Map<LocalDate, Integer> contributionActivity;
 
   protected CalendarViewListModel(LocalDate date) {
+    this(getWeekViewStart(date), DayOfWeek.values().length * (WEEK_VIEW - 1) + getDayOfWeek(date));
+    // this.contributionActivity = new ConcurrentHashMap<>(displayDays);
+    // Random rnd = new Random();
+    // IntStream.range(0, displayDays).forEach(i -> contributionActivity.put(startDate.plusDays(i), rnd.nextInt(5)));
+  }
+
+  protected CalendarViewListModel(LocalDate startDate, int days) {
     super();
-    int dow = date.get(WeekFields.of(Locale.getDefault()).dayOfWeek());
-    this.startDate = date.minusWeeks(WEEK_VIEW - 1L).minusDays(dow - 1L);
-    this.displayDays = DayOfWeek.values().length * (WEEK_VIEW - 1) + dow;
-    this.contributionActivity = new ConcurrentHashMap<>(displayDays);
-    Random rnd = new Random();
-    IntStream.range(0, displayDays).forEach(i -> contributionActivity.put(startDate.plusDays(i), rnd.nextInt(5)));
+    this.startEpochDay = startDate.toEpochDay();
+    this.activities = new byte[days];
+    Arrays.fill(activities, (byte) NO_DATA);
+  }
+
+  private static int getDayOfWeek(LocalDate date) {
+    return date.get(WeekFields.of(Locale.getDefault()).dayOfWeek());
+  }
+
+  private static LocalDate getWeekViewStart(LocalDate date) {
+    return date.minusWeeks(WEEK_VIEW - 1L).minusDays(getDayOfWeek(date) - 1L);
+  }
+
+  public LocalDate getStartDate() {
+    return LocalDate.ofEpochDay(startEpochDay);
   }
 
   @Override public int getSize() {
-    return displayDays;
+    return activities.length;
   }
 
   @Override public Contribution getElementAt(int index) {
-    LocalDate date = startDate.plusDays(index);
-    return new Contribution(date, contributionActivity.get(date));
+    // LocalDate date = startDate.plusDays(index);
+    // return new Contribution(date, contributionActivity.get(date));
+    return Contribution.valueOf(activities[index]);
+  }
+
+  public long getEpochDay(int index) {
+    return startEpochDay + index;
+  }
+
+  public LocalDate getDate(int index) {
+    return LocalDate.ofEpochDay(getEpochDay(index));
+  }
+
+  // May be called from any thread. Updates arriving before the EDT gets to
+  // the pending flush are reported in a single fireContentsChanged.
+  public void setActivity(long epochDay, int activity) {
+    if (activity < NO_DATA || activity > MAX_ACTIVITY) {
+      throw new IllegalArgumentException("activity: " + activity);
+    }
+    long index = epochDay - startEpochDay;
+    if (index < 0 || index >= activities.length) {
+      return;
+    }
+    int i = (int) index;
+    synchronized (lock) {
+      activities[i] = (byte) activity;
+      boolean scheduled = dirtyLast >= 0;
+      dirtyFirst = Math.min(dirtyFirst, i);
+      dirtyLast = Math.max(dirtyLast, i);
+      if (scheduled) {
+        return;
+      }
+    }
+    EventQueue.invokeLater(this::flush);
+  }
+
+  private void flush() {
+    int first;
+    int last;
+    synchronized (lock) {
+      first = dirtyFirst;
+      last = dirtyLast;
+      dirtyFirst = Integer.MAX_VALUE;
+      dirtyLast = -1;
+    }
+    if (last >= 0) {
+      fireContentsChanged(this, first, last);
+    }
   }
 }
 
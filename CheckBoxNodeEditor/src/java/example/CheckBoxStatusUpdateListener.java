@@ -7,13 +7,13 @@ package example;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
-import java.util.Collections;
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.EventObject;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import javax.swing.*;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
@@ -25,9 +25,31 @@ import javax.swing.tree.TreeCellRenderer;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
+// Toggling a node assigns its status to the whole subtree by stamping only
+// that node; descendants resolve the newest stamp on their path lazily (see
+// getStatus). A NodeState is created only for nodes on a toggled path and
+// keeps counters of its checked and indeterminate children, so a toggle
+// updates O(depth) nodes and fires a single treeNodesChanged event.
 public final class CheckBoxStatusUpdateListener implements TreeModelListener {
+  private final Map<TreeNode, NodeState> states = new HashMap<>();
+  private long clock;
   private boolean adjusting;
 
+  public Status getStatus(TreeNode node) {
+    NodeState top = null;
+    for (TreeNode n = node; Objects.nonNull(n); n = n.getParent()) {
+      NodeState s = states.get(n);
+      if (Objects.nonNull(s) && (Objects.isNull(top) || s.assignStamp > top.assignStamp)) {
+        top = s;
+      }
+    }
+    NodeState s = states.get(node);
+    if (Objects.nonNull(top) && top.assignStamp > 0 && (Objects.isNull(s) || s.fresh < top.assignStamp)) {
+      return top.assignStatus;
+    }
+    return Objects.nonNull(s) ? s.status : Status.DESELECTED;
+  }
+
   @Override public void treeNodesChanged(TreeModelEvent e) {
     if (adjusting) {
       return;
@@ -38,108 +60,187 @@ public final class CheckBoxStatusUpdateListener implements TreeModelListener {
     // https://docs.oracle.com/javase/8/docs/api/javax/swing/event/TreeModelListener.html#treeNodesChanged-javax.swing.event.TreeModelEvent-
     // To indicate the root has changed, childIndices and children will be null.
     Object[] children = e.getChildren();
-    boolean isRoot = Objects.isNull(children);
-
-    // If the parent node exists, update its status
-    if (!isRoot) {
-      TreePath parent = e.getTreePath();
-      DefaultMutableTreeNode n = (DefaultMutableTreeNode) parent.getLastPathComponent();
-      while (Objects.nonNull(n)) {
-        updateParentUserObject(n);
-        TreeNode tmp = n.getParent();
-        if (tmp instanceof DefaultMutableTreeNode) {
-          n = (DefaultMutableTreeNode) tmp;
-        } else {
-          break;
+    Object[] nodes = Objects.isNull(children) ? new Object[] {model.getRoot()} : children;
+    TreeNode top = null;
+    for (Object o: nodes) {
+      if (o instanceof DefaultMutableTreeNode) {
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) o;
+        Object userObject = node.getUserObject();
+        if (userObject instanceof CheckBoxNode) {
+          TreeNode changed = toggle(node, ((CheckBoxNode) userObject).getStatus());
+          if (Objects.isNull(top) || getLevel(changed) < getLevel(top)) {
+            top = changed;
+          }
         }
       }
-      model.nodeChanged(n);
     }
-
-    // Update the status of all child nodes to be the same as the current node status
-    boolean isOnlyOneNodeSelected = Objects.nonNull(children) && children.length == 1;
-    Object current = isOnlyOneNodeSelected ? children[0] : model.getRoot();
-    if (current instanceof DefaultMutableTreeNode) {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) current;
-      CheckBoxNode c = (CheckBoxNode) node.getUserObject();
-      updateAllChildrenUserObject(node, c.getStatus());
-      model.nodeChanged(node);
+    // the descendants of the changed node follow its status, so a single
+    // event for the topmost changed node is enough for the views to repaint
+    if (Objects.nonNull(top)) {
+      model.nodeChanged(top);
     }
 
     adjusting = false;
   }
 
-  // private void updateParentUserObject(DefaultMutableTreeNode parent) {
-  //   int selectedCount = 0;
-  //   // Java 9: Enumeration<TreeNode> children = parent.children();
-  //   Enumeration<?> children = parent.children();
-  //   while (children.hasMoreElements()) {
-  //     DefaultMutableTreeNode node = (DefaultMutableTreeNode) children.nextElement();
-  //     CheckBoxNode check = (CheckBoxNode) node.getUserObject();
-  //     if (check.status == Status.INDETERMINATE) {
-  //       selectedCount = -1;
-  //       break;
-  //     }
-  //     if (check.status == Status.SELECTED) {
-  //       selectedCount++;
-  //     }
-  //   }
-  //   String label = ((CheckBoxNode) parent.getUserObject()).label;
-  //   if (selectedCount == 0) {
-  //     parent.setUserObject(new CheckBoxNode(label, Status.DESELECTED));
-  //   } else if (selectedCount == parent.getChildCount()) {
-  //     parent.setUserObject(new CheckBoxNode(label, Status.SELECTED));
-  //   } else {
-  //     parent.setUserObject(new CheckBoxNode(label));
-  //   }
-  // }
+  @Override public void treeNodesInserted(TreeModelEvent e) {
+    TreeNode parent = (TreeNode) e.getTreePath().getLastPathComponent();
+    NodeState p = materialize(parent);
+    // materialize() may have already counted the new children with the
+    // parent's uniform status
+    int missing = parent.getChildCount() - p.total;
+    Status base = p.status == Status.INDETERMINATE ? Status.DESELECTED : p.status;
+    for (Object o: e.getChildren()) {
+      TreeNode child = (TreeNode) o;
+      clock++;
+      NodeState s = new NodeState();
+      s.assign(base, child.getChildCount(), clock);
+      states.put(child, s);
+    }
+    if (missing > 0) {
+      p.total += missing;
+      p.add(base, missing);
+      propagate(parent, p);
+    }
+  }
 
-  private void updateParentUserObject(DefaultMutableTreeNode parent) {
-    // Java 9: Collections.list(parent.children()).stream()
-    List<Status> list = Collections.list((Enumeration<?>) parent.children()).stream()
-        .filter(DefaultMutableTreeNode.class::isInstance)
-        .map(DefaultMutableTreeNode.class::cast)
-        .map(DefaultMutableTreeNode::getUserObject)
-        .filter(CheckBoxNode.class::isInstance)
-        .map(CheckBoxNode.class::cast)
-        .map(CheckBoxNode::getStatus)
-        .collect(Collectors.toList());
+  @Override public void treeNodesRemoved(TreeModelEvent e) {
+    /* not needed */
+  }
 
-    Object o = parent.getUserObject();
-    if (o instanceof CheckBoxNode) {
-      String label = ((CheckBoxNode) o).getLabel();
-      if (list.stream().allMatch(s -> s == Status.DESELECTED)) {
-        parent.setUserObject(new CheckBoxNode(label, Status.DESELECTED));
-      } else if (list.stream().allMatch(s -> s == Status.SELECTED)) {
-        parent.setUserObject(new CheckBoxNode(label, Status.SELECTED));
-      } else {
-        parent.setUserObject(new CheckBoxNode(label, Status.INDETERMINATE));
-      }
+  @Override public void treeStructureChanged(TreeModelEvent e) {
+    /* not needed */
+  }
+
+  // Returns the topmost node whose status changed.
+  private TreeNode toggle(TreeNode node, Status status) {
+    NodeState s = materialize(node);
+    if (status == Status.INDETERMINATE) {
+      return node;
+    }
+    Status old = s.status;
+    clock++;
+    s.assign(status, node.getChildCount(), clock);
+    NodeState p = Objects.nonNull(node.getParent()) ? states.get(node.getParent()) : null;
+    if (Objects.nonNull(p) && old != status) {
+      p.add(old, -1);
+      p.add(status, 1);
+      TreeNode top = propagate(node.getParent(), p);
+      return Objects.nonNull(top) ? top : node;
     }
+    return node;
   }
 
-  private void updateAllChildrenUserObject(DefaultMutableTreeNode parent, Status status) {
-    // Java 9: Collections.list(parent.breadthFirstEnumeration()).stream()
-    Collections.list((Enumeration<?>) parent.breadthFirstEnumeration()).stream()
-        .filter(DefaultMutableTreeNode.class::isInstance)
-        .map(DefaultMutableTreeNode.class::cast)
-        .filter(node -> !Objects.equals(parent, node))
-        .forEach(node -> {
-          CheckBoxNode check = (CheckBoxNode) node.getUserObject();
-          node.setUserObject(new CheckBoxNode(check.getLabel(), status));
-        });
+  // Re-aggregates the status of node and its ancestors from the counters,
+  // stopping at the first one that does not change.
+  private TreeNode propagate(TreeNode node, NodeState s) {
+    TreeNode top = null;
+    TreeNode n = node;
+    NodeState ns = s;
+    while (Objects.nonNull(ns)) {
+      Status old = ns.status;
+      Status status = ns.aggregate();
+      if (old == status) {
+        break;
+      }
+      ns.status = status;
+      top = n;
+      n = n.getParent();
+      if (Objects.isNull(n)) {
+        break;
+      }
+      ns = states.get(n);
+      ns.add(old, -1);
+      ns.add(status, 1);
+    }
+    return top;
   }
 
-  @Override public void treeNodesInserted(TreeModelEvent e) {
-    /* not needed */
+  // Brings the states on the path from the root to node up to date with the
+  // newest assignment above them and returns the state of node.
+  private NodeState materialize(TreeNode node) {
+    List<TreeNode> path = new ArrayList<>();
+    for (TreeNode n = node; Objects.nonNull(n); n = n.getParent()) {
+      path.add(n);
+    }
+    NodeState top = null;
+    NodeState s = null;
+    for (int i = path.size() - 1; i >= 0; i--) {
+      TreeNode n = path.get(i);
+      s = states.get(n);
+      if (Objects.isNull(s)) {
+        // a node without state has no descendant with state either, so it
+        // is uniformly covered by the newest assignment above, if any
+        s = new NodeState();
+        if (Objects.isNull(top)) {
+          s.reset(Status.DESELECTED, n.getChildCount(), 0L);
+        } else {
+          s.reset(top.assignStatus, n.getChildCount(), top.assignStamp);
+        }
+        states.put(n, s);
+      } else if (Objects.nonNull(top) && s.fresh < top.assignStamp) {
+        s.reset(top.assignStatus, n.getChildCount(), top.assignStamp);
+      }
+      if (s.assignStamp > 0 && (Objects.isNull(top) || s.assignStamp > top.assignStamp)) {
+        top = s;
+      }
+    }
+    return s;
   }
 
-  @Override public void treeNodesRemoved(TreeModelEvent e) {
-    /* not needed */
+  private static int getLevel(TreeNode node) {
+    int level = 0;
+    for (TreeNode n = node.getParent(); Objects.nonNull(n); n = n.getParent()) {
+      level++;
+    }
+    return level;
   }
 
-  @Override public void treeStructureChanged(TreeModelEvent e) {
-    /* not needed */
+  private static class NodeState {
+    // aggregated status and child counters, valid while fresh is not older
+    // than the newest assignment on the path from the root
+    protected Status status = Status.DESELECTED;
+    protected int total;
+    protected int selected;
+    protected int indeterminate;
+    protected long fresh;
+    // the subtree-wide assignment made by toggling this node
+    protected Status assignStatus;
+    protected long assignStamp;
+
+    protected void reset(Status s, int childCount, long stamp) {
+      status = s;
+      total = childCount;
+      selected = s == Status.SELECTED ? childCount : 0;
+      indeterminate = 0;
+      fresh = stamp;
+    }
+
+    protected void assign(Status s, int childCount, long stamp) {
+      reset(s, childCount, stamp);
+      assignStatus = s;
+      assignStamp = stamp;
+    }
+
+    protected void add(Status s, int delta) {
+      if (s == Status.SELECTED) {
+        selected += delta;
+      } else if (s == Status.INDETERMINATE) {
+        indeterminate += delta;
+      }
+    }
+
+    protected Status aggregate() {
+      if (total == 0) {
+        return status;
+      } else if (selected == total) {
+        return Status.SELECTED;
+      } else if (selected == 0 && indeterminate == 0) {
+        return Status.DESELECTED;
+      } else {
+        return Status.INDETERMINATE;
+      }
+    }
   }
 }
 
@@ -147,6 +248,11 @@ class CheckBoxNodeRenderer implements TreeCellRenderer {
   private final JPanel panel = new JPanel(new BorderLayout());
   private final TriStateCheckBox checkBox = new TriStateCheckBox();
   private final DefaultTreeCellRenderer renderer = new DefaultTreeCellRenderer();
+  private final CheckBoxStatusUpdateListener statusListener;
+
+  protected CheckBoxNodeRenderer(CheckBoxStatusUpdateListener statusListener) {
+    this.statusListener = statusListener;
+  }
 
   @Override public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
     JLabel l = (JLabel) renderer.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
@@ -162,13 +268,15 @@ class CheckBoxNodeRenderer implements TreeCellRenderer {
       Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
       if (userObject instanceof CheckBoxNode) {
         CheckBoxNode node = (CheckBoxNode) userObject;
-        if (node.getStatus() == Status.INDETERMINATE) {
+        // the status is resolved lazily, the user object may be stale
+        Status status = statusListener.getStatus((DefaultMutableTreeNode) value);
+        if (status == Status.INDETERMINATE) {
           checkBox.setIcon(new IndeterminateIcon());
         } else {
           checkBox.setIcon(null);
         }
         l.setText(node.getLabel());
-        checkBox.setSelected(node.getStatus() == Status.SELECTED);
+        checkBox.setSelected(status == Status.SELECTED);
       }
       panel.add(checkBox, BorderLayout.WEST);
       panel.add(l);
@@ -192,8 +300,14 @@ class CheckBoxNodeEditor extends AbstractCellEditor implements TreeCellEditor {
     }
   };
   private final DefaultTreeCellRenderer renderer = new DefaultTreeCellRenderer();
+  private final transient CheckBoxStatusUpdateListener statusListener;
   private String str;
 
+  protected CheckBoxNodeEditor(CheckBoxStatusUpdateListener statusListener) {
+    super();
+    this.statusListener = statusListener;
+  }
+
   @Override public Component getTreeCellEditorComponent(JTree tree, Object value, boolean selected, boolean expanded, boolean leaf, int row) {
     JLabel l = (JLabel) renderer.getTreeCellRendererComponent(tree, value, true, expanded, leaf, row, true);
     l.setFont(tree.getFont());
@@ -208,13 +322,15 @@ class CheckBoxNodeEditor extends AbstractCellEditor implements TreeCellEditor {
       Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
       if (userObject instanceof CheckBoxNode) {
         CheckBoxNode node = (CheckBoxNode) userObject;
-        if (node.getStatus() == Status.INDETERMINATE) {
+        // the status is resolved lazily, the user object may be stale
+        Status status = statusListener.getStatus((DefaultMutableTreeNode) value);
+        if (status == Status.INDETERMINATE) {
           checkBox.setIcon(new IndeterminateIcon());
         } else {
           checkBox.setIcon(null);
         }
         l.setText(node.getLabel());
-        checkBox.setSelected(node.getStatus() == Status.SELECTED);
+        checkBox.setSelected(status == Status.SELECTED);
         str = node.getLabel();
       }
       panel.add(checkBox, BorderLayout.WEST);
@@ -8,21 +8,26 @@ import java.awt.*;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Objects;
+import java.util.Optional;
 import javax.swing.*;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
+    CheckBoxStatusUpdateListener statusListener = new CheckBoxStatusUpdateListener();
     JTree tree = new JTree() {
       @Override public void updateUI() {
         setCellRenderer(null);
         setCellEditor(null);
         super.updateUI();
         // ???#1: JDK 1.6.0 bug??? Nimbus LnF
-        setCellRenderer(new CheckBoxNodeRenderer());
-        setCellEditor(new CheckBoxNodeEditor());
+        setCellRenderer(new CheckBoxNodeRenderer(statusListener));
+        setCellEditor(new CheckBoxNodeEditor(statusListener));
       }
     };
     TreeModel model = tree.getModel();
@@ -33,7 +38,31 @@ public final class MainPanel extends JPanel {
       .map(DefaultMutableTreeNode.class::cast)
       .forEach(n -> n.setUserObject(new CheckBoxNode(Objects.toString(n.getUserObject(), ""), Status.DESELECTED)));
 
-    model.addTreeModelListener(new CheckBoxStatusUpdateListener());
+    model.addTreeModelListener(statusListener);
+    model.addTreeModelListener(new TreeModelListener() {
+      @Override public void treeNodesChanged(TreeModelEvent e) {
+        // the descendants of the changed node follow its status, repaint them too
+        Object[] children = e.getChildren();
+        TreePath path = e.getTreePath();
+        if (Objects.nonNull(children) && children.length > 0) {
+          path = path.pathByAddingChild(children[0]);
+        }
+        int y = Optional.ofNullable(tree.getPathBounds(path)).map(r -> r.y).orElse(0);
+        tree.repaint(0, y, tree.getWidth(), tree.getHeight() - y);
+      }
+
+      @Override public void treeNodesInserted(TreeModelEvent e) {
+        /* not needed */
+      }
+
+      @Override public void treeNodesRemoved(TreeModelEvent e) {
+        /* not needed */
+      }
+
+      @Override public void treeStructureChanged(TreeModelEvent e) {
+        /* not needed */
+      }
+    });
 
     tree.setEditable(true);
     tree.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
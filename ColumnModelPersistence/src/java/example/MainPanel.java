@@ -13,12 +13,27 @@ import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
@@ -26,8 +41,12 @@ import javax.swing.table.DefaultTableColumnModel;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 public final class MainPanel extends JPanel {
+  private Path binaryFile;
+
   private MainPanel() {
     super(new BorderLayout());
     String[] columnNames = {"A", "B"};
@@ -92,10 +111,57 @@ public final class MainPanel extends JPanel {
     JButton clearButton = new JButton("clear");
     clearButton.addActionListener(e -> table.setModel(new DefaultTableModel()));
 
-    JPanel p = new JPanel();
+    JButton writeButton = new JButton("write binary");
+    writeButton.addActionListener(e -> {
+      try {
+        Path file = Files.createTempFile("output", ".tmc");
+        file.toFile().deleteOnExit();
+        DefaultTableModel m = (DefaultTableModel) table.getModel();
+        TableModelCodec.write(file, m, table.getColumnModel(), table.getRowSorter().getSortKeys());
+        binaryFile = file;
+        textArea.setText(String.format("%s: %d bytes%n", file, Files.size(file)));
+      } catch (IOException ex) {
+        ex.printStackTrace();
+        textArea.setText(ex.getMessage());
+      }
+    });
+
+    JButton readButton = new JButton("read binary");
+    readButton.addActionListener(e -> {
+      if (Objects.isNull(binaryFile)) {
+        return;
+      }
+      try {
+        TableModelCodec.TableState state = TableModelCodec.read(binaryFile);
+        table.setModel(state.getTableModel());
+        table.setAutoCreateRowSorter(true);
+        table.getRowSorter().setSortKeys(state.getSortKeys());
+        table.setColumnModel(state.getColumnModel());
+      } catch (IOException ex) {
+        ex.printStackTrace();
+        textArea.setText(ex.getMessage());
+      }
+    });
+
+    JButton benchButton = new JButton("benchmark");
+    benchButton.addActionListener(e -> {
+      benchButton.setEnabled(false);
+      textArea.setText("");
+      new BenchmarkTask(textArea) {
+        @Override protected void done() {
+          super.done();
+          benchButton.setEnabled(true);
+        }
+      }.execute();
+    });
+
+    JPanel p = new JPanel(new GridLayout(2, 3));
     p.add(encButton);
     p.add(decButton);
     p.add(clearButton);
+    p.add(writeButton);
+    p.add(readButton);
+    p.add(benchButton);
     add(sp);
     add(p, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
@@ -150,6 +216,478 @@ class DefaultTableColumnModelPersistenceDelegate extends DefaultPersistenceDeleg
   }
 }
 
+// A column-oriented binary file format for DefaultTableModel.
+// Every column is written as one typed block (fixed-width values or an offset
+// table into UTF-8 bytes), so a file can be memory-mapped and the rows are
+// decoded only when they are first read.
+final class TableModelCodec {
+  private static final int MAGIC = 0x54_4D_43_31; // "TMC1"
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte STRING = 5;
+  private static final byte OBJECT = 6;
+
+  private TableModelCodec() {
+    /* Singleton */
+  }
+
+  public static void write(Path file, DefaultTableModel model, TableColumnModel columnModel, List<? extends RowSorter.SortKey> keys) throws IOException {
+    int rowCount = model.getRowCount();
+    int columnCount = model.getColumnCount();
+    try (CountingOutputStream cos = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+         DataOutputStream out = new DataOutputStream(cos)) {
+      byte[] types = new byte[columnCount];
+      long[] offsets = new long[columnCount];
+      for (int col = 0; col < columnCount; col++) {
+        types[col] = getColumnType(model, col);
+        offsets[col] = cos.getCount();
+        writeColumn(out, model, col, types[col]);
+      }
+      out.flush();
+      long directory = cos.getCount();
+      out.writeInt(MAGIC);
+      out.writeInt(rowCount);
+      out.writeInt(columnCount);
+      for (int col = 0; col < columnCount; col++) {
+        writeString(out, model.getColumnName(col));
+        out.writeByte(types[col]);
+        out.writeLong(offsets[col]);
+      }
+      int keyCount = Objects.nonNull(keys) ? keys.size() : 0;
+      out.writeInt(keyCount);
+      for (int i = 0; i < keyCount; i++) {
+        out.writeInt(keys.get(i).getColumn());
+        out.writeByte(keys.get(i).getSortOrder().ordinal());
+      }
+      int viewColumns = Objects.nonNull(columnModel) ? columnModel.getColumnCount() : 0;
+      out.writeInt(viewColumns);
+      for (int i = 0; i < viewColumns; i++) {
+        TableColumn c = columnModel.getColumn(i);
+        out.writeInt(c.getModelIndex());
+        writeString(out, Objects.toString(c.getHeaderValue(), ""));
+        out.writeInt(c.getWidth());
+        out.writeInt(c.getPreferredWidth());
+        out.writeInt(c.getMinWidth());
+        out.writeInt(c.getMaxWidth());
+        out.writeBoolean(c.getResizable());
+      }
+      out.writeLong(directory);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte getColumnType(TableModel model, int col) {
+    Class<?> type = null;
+    for (int row = 0; row < model.getRowCount(); row++) {
+      Object o = model.getValueAt(row, col);
+      if (Objects.isNull(o)) {
+        continue;
+      }
+      if (Objects.isNull(type)) {
+        type = o.getClass();
+      } else if (!type.equals(o.getClass())) {
+        return OBJECT;
+      }
+    }
+    if (Objects.isNull(type)) {
+      return NULL;
+    } else if (type.equals(Integer.class)) {
+      return INT;
+    } else if (type.equals(Long.class)) {
+      return LONG;
+    } else if (type.equals(Double.class)) {
+      return DOUBLE;
+    } else if (type.equals(Boolean.class)) {
+      return BOOLEAN;
+    } else if (type.equals(String.class)) {
+      return STRING;
+    }
+    return OBJECT;
+  }
+
+  // block: null bitmap, then the values (or an offset table and the bytes it points into)
+  private static void writeColumn(DataOutputStream out, TableModel model, int col, byte type) throws IOException {
+    int rowCount = model.getRowCount();
+    if (type == NULL) {
+      return;
+    }
+    byte[] nulls = new byte[(rowCount + 7) / 8];
+    for (int row = 0; row < rowCount; row++) {
+      if (Objects.isNull(model.getValueAt(row, col))) {
+        nulls[row >> 3] |= 1 << (row & 7);
+      }
+    }
+    out.write(nulls);
+    if (type == STRING || type == OBJECT) {
+      byte[][] values = new byte[rowCount][];
+      int offset = 0;
+      for (int row = 0; row < rowCount; row++) {
+        Object o = model.getValueAt(row, col);
+        values[row] = Objects.isNull(o) ? new byte[0] : type == STRING ? ((String) o).getBytes(StandardCharsets.UTF_8) : serialize(o);
+        out.writeInt(offset);
+        offset += values[row].length;
+      }
+      out.writeInt(offset);
+      for (byte[] v: values) {
+        out.write(v);
+      }
+      return;
+    }
+    for (int row = 0; row < rowCount; row++) {
+      Object o = model.getValueAt(row, col);
+      switch (type) {
+        case INT:
+          out.writeInt(Objects.isNull(o) ? 0 : (Integer) o);
+          break;
+        case LONG:
+          out.writeLong(Objects.isNull(o) ? 0L : (Long) o);
+          break;
+        case DOUBLE:
+          out.writeDouble(Objects.isNull(o) ? 0d : (Double) o);
+          break;
+        default:
+          out.writeBoolean(Objects.nonNull(o) && (Boolean) o);
+          break;
+      }
+    }
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+      oos.writeObject(o);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static TableState read(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      return new TableState(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+    }
+  }
+
+  // The decoded directory of a mapped file; the cell data is left in the buffer.
+  static final class TableState {
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final String[] columnNames;
+    private final byte[] types;
+    private final int[] offsets;
+    private final int sortKeysOffset;
+
+    TableState(ByteBuffer buffer) throws IOException {
+      this.buffer = buffer;
+      int limit = buffer.limit();
+      if (limit < Long.BYTES) {
+        throw new IOException("file too short");
+      }
+      ByteBuffer b = buffer.duplicate();
+      b.position((int) buffer.getLong(limit - Long.BYTES));
+      if (b.getInt() != MAGIC) {
+        throw new IOException("not a table model file");
+      }
+      rowCount = b.getInt();
+      int columnCount = b.getInt();
+      columnNames = new String[columnCount];
+      types = new byte[columnCount];
+      offsets = new int[columnCount];
+      for (int col = 0; col < columnCount; col++) {
+        columnNames[col] = readString(b);
+        types[col] = b.get();
+        offsets[col] = (int) b.getLong();
+      }
+      sortKeysOffset = b.position();
+    }
+
+    public DefaultTableModel getTableModel() {
+      return new LazyTableModel(this);
+    }
+
+    public DefaultTableColumnModel getColumnModel() {
+      ByteBuffer b = buffer.duplicate();
+      int keyCount = b.getInt(sortKeysOffset);
+      b.position(sortKeysOffset + Integer.BYTES + keyCount * (Integer.BYTES + 1));
+      DefaultTableColumnModel cm = new DefaultTableColumnModel();
+      int count = b.getInt();
+      for (int i = 0; i < count; i++) {
+        TableColumn c = new TableColumn(b.getInt());
+        c.setHeaderValue(readString(b));
+        int width = b.getInt();
+        c.setPreferredWidth(b.getInt());
+        c.setMinWidth(b.getInt());
+        c.setMaxWidth(b.getInt());
+        c.setWidth(width);
+        c.setResizable(b.get() != 0);
+        cm.addColumn(c);
+      }
+      return cm;
+    }
+
+    public List<RowSorter.SortKey> getSortKeys() {
+      ByteBuffer b = buffer.duplicate();
+      b.position(sortKeysOffset);
+      List<RowSorter.SortKey> keys = new ArrayList<>();
+      int keyCount = b.getInt();
+      for (int i = 0; i < keyCount; i++) {
+        int column = b.getInt();
+        keys.add(new RowSorter.SortKey(column, SortOrder.values()[b.get()]));
+      }
+      return keys;
+    }
+
+    int getRowCount() {
+      return rowCount;
+    }
+
+    String[] getColumnNames() {
+      return columnNames.clone();
+    }
+
+    Object getValueAt(int row, int col) {
+      byte type = types[col];
+      int base = offsets[col];
+      if (type == NULL || (buffer.get(base + (row >> 3)) & 1 << (row & 7)) != 0) {
+        return null;
+      }
+      int values = base + (rowCount + 7) / 8;
+      switch (type) {
+        case INT:
+          return buffer.getInt(values + row * Integer.BYTES);
+        case LONG:
+          return buffer.getLong(values + row * Long.BYTES);
+        case DOUBLE:
+          return buffer.getDouble(values + row * Double.BYTES);
+        case BOOLEAN:
+          return buffer.get(values + row) != 0;
+        default:
+          int start = buffer.getInt(values + row * Integer.BYTES);
+          int end = buffer.getInt(values + (row + 1) * Integer.BYTES);
+          byte[] bytes = new byte[end - start];
+          ByteBuffer b = buffer.duplicate();
+          b.position(values + (rowCount + 1) * Integer.BYTES + start);
+          b.get(bytes);
+          return type == STRING ? new String(bytes, StandardCharsets.UTF_8) : deserialize(bytes);
+      }
+    }
+
+    private static Object deserialize(byte[] bytes) {
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return ois.readObject();
+      } catch (IOException | ClassNotFoundException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    private static String readString(ByteBuffer b) {
+      byte[] bytes = new byte[b.getInt()];
+      b.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    public long getCount() {
+      return count;
+    }
+  }
+}
+
+// A DefaultTableModel whose rows stay in the mapped file until they are read.
+// Any change to the row structure first materializes every row, so the
+// row indexes into the file never shift under it.
+class LazyTableModel extends DefaultTableModel {
+  private transient TableModelCodec.TableState state;
+
+  protected LazyTableModel(TableModelCodec.TableState state) {
+    super(state.getColumnNames(), 0);
+    this.state = state;
+    dataVector.setSize(state.getRowCount());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Vector<Object> getRow(int row) {
+    Vector<Object> v = (Vector<Object>) dataVector.elementAt(row);
+    if (Objects.isNull(v) && Objects.nonNull(state)) {
+      int columnCount = getColumnCount();
+      v = new Vector<>(columnCount);
+      for (int col = 0; col < columnCount; col++) {
+        v.add(state.getValueAt(row, col));
+      }
+      ((Vector) dataVector).set(row, v);
+    }
+    return v;
+  }
+
+  private void materialize() {
+    if (Objects.nonNull(state)) {
+      for (int row = 0; row < dataVector.size(); row++) {
+        getRow(row);
+      }
+      state = null;
+    }
+  }
+
+  @Override public Object getValueAt(int row, int column) {
+    return getRow(row).elementAt(column);
+  }
+
+  @Override public void setValueAt(Object value, int row, int column) {
+    getRow(row);
+    super.setValueAt(value, row, column);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Override public Vector getDataVector() {
+    materialize();
+    return super.getDataVector();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Override public void setDataVector(Vector dataVector, Vector columnIdentifiers) {
+    state = null;
+    super.setDataVector(dataVector, columnIdentifiers);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Override public void insertRow(int row, Vector rowData) {
+    materialize();
+    super.insertRow(row, rowData);
+  }
+
+  @Override public void moveRow(int start, int end, int to) {
+    materialize();
+    super.moveRow(start, end, to);
+  }
+
+  @Override public void removeRow(int row) {
+    materialize();
+    super.removeRow(row);
+  }
+
+  @Override public void setRowCount(int rowCount) {
+    materialize();
+    super.setRowCount(rowCount);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Override public void setColumnIdentifiers(Vector columnIdentifiers) {
+    materialize();
+    super.setColumnIdentifiers(columnIdentifiers);
+  }
+
+  @Override public void setColumnCount(int columnCount) {
+    materialize();
+    super.setColumnCount(columnCount);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Override public void addColumn(Object columnName, Vector columnData) {
+    materialize();
+    super.addColumn(columnName, columnData);
+  }
+}
+
+// Round-trips a generated model through XMLEncoder/XMLDecoder and through
+// TableModelCodec, and reports time and file size of each path.
+class BenchmarkTask extends SwingWorker<Void, String> {
+  private static final int ROW_COUNT = 20_000;
+  private final JTextArea textArea;
+
+  protected BenchmarkTask(JTextArea textArea) {
+    super();
+    this.textArea = textArea;
+  }
+
+  @Override protected Void doInBackground() throws IOException {
+    String[] columnNames = {"Integer", "Double", "String", "Boolean"};
+    DefaultTableModel model = new DefaultTableModel(columnNames, 0);
+    Random rnd = new Random(1L);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      model.addRow(new Object[] {i, rnd.nextDouble(), "row" + rnd.nextInt(), rnd.nextBoolean()});
+    }
+    publish(String.format("%d rows x %d columns%n", ROW_COUNT, columnNames.length));
+
+    Path xml = Files.createTempFile("bench", ".xml");
+    long start = System.nanoTime();
+    try (XMLEncoder xe = new XMLEncoder(new BufferedOutputStream(Files.newOutputStream(xml)))) {
+      xe.setPersistenceDelegate(DefaultTableModel.class, new DefaultTableModelPersistenceDelegate());
+      xe.writeObject(model);
+    }
+    long written = System.nanoTime();
+    try (XMLDecoder xd = new XMLDecoder(new BufferedInputStream(Files.newInputStream(xml)))) {
+      touch((DefaultTableModel) xd.readObject());
+    }
+    publish(report("XML", xml, start, written, System.nanoTime()));
+    Files.delete(xml);
+
+    Path bin = Files.createTempFile("bench", ".tmc");
+    start = System.nanoTime();
+    TableModelCodec.write(bin, model, null, null);
+    written = System.nanoTime();
+    touch(TableModelCodec.read(bin).getTableModel());
+    publish(report("binary", bin, start, written, System.nanoTime()));
+    bin.toFile().deleteOnExit();
+    return null;
+  }
+
+  // reads every cell, so the lazy model pays its full decoding cost
+  private static void touch(TableModel model) {
+    int hash = 0;
+    for (int row = 0; row < model.getRowCount(); row++) {
+      for (int col = 0; col < model.getColumnCount(); col++) {
+        hash += Objects.hashCode(model.getValueAt(row, col));
+      }
+    }
+    if (hash == 42) {
+      Toolkit.getDefaultToolkit().beep();
+    }
+  }
+
+  private static String report(String name, Path file, long start, long written, long read) throws IOException {
+    return String.format("%s: write %d ms, read %d ms, %d bytes%n",
+        name, (written - start) / 1_000_000, (read - written) / 1_000_000, Files.size(file));
+  }
+
+  @Override protected void process(List<String> chunks) {
+    chunks.forEach(textArea::append);
+  }
+
+  @Override protected void done() {
+    try {
+      get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException ex) {
+      textArea.append(ex.getCause().toString());
+    }
+  }
+}
+
 class TableHeaderPopupMenu extends JPopupMenu {
   private int index = -1;
 
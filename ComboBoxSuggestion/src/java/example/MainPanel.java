@@ -8,8 +8,24 @@ import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
@@ -23,7 +39,14 @@ public final class MainPanel extends JPanel {
     combo.setSelectedIndex(-1);
     JTextField field = (JTextField) combo.getEditor().getEditorComponent();
     field.setText("");
-    field.addKeyListener(new ComboKeyHandler(combo));
+    SuggestionIndex index = new SuggestionIndex();
+    field.addKeyListener(new ComboKeyHandler(combo, index));
+
+    JCheckBox check = new JCheckBox("infix match");
+    check.addActionListener(e -> {
+      boolean infix = ((JCheckBox) e.getSource()).isSelected();
+      CompletableFuture.runAsync(() -> index.setInfix(infix));
+    });
 
     // InputMap im = combo.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
     // im.put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "enterPressed2");
@@ -43,6 +66,7 @@ public final class MainPanel extends JPanel {
     JPanel p = new JPanel(new BorderLayout());
     p.setBorder(BorderFactory.createTitledBorder("Auto-Completion ComboBox"));
     p.add(combo, BorderLayout.NORTH);
+    p.add(check, BorderLayout.SOUTH);
 
     Box box = Box.createVerticalBox();
     box.add(makeHelpPanel());
@@ -138,36 +162,56 @@ public final class MainPanel extends JPanel {
 }
 
 class ComboKeyHandler extends KeyAdapter {
+  private static final int MAX_SUGGESTIONS = 100;
   private final JComboBox<String> comboBox;
-  private final List<String> list = new ArrayList<>();
+  private final SuggestionIndex index;
+  private final SuggestionModel model = new SuggestionModel();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "suggestion");
+    t.setDaemon(true);
+    return t;
+  });
+  private final AtomicInteger generation = new AtomicInteger();
   private boolean shouldHide;
 
-  protected ComboKeyHandler(JComboBox<String> combo) {
+  protected ComboKeyHandler(JComboBox<String> combo, SuggestionIndex index) {
     super();
     this.comboBox = combo;
+    this.index = index;
     for (int i = 0; i < comboBox.getModel().getSize(); i++) {
-      list.add(comboBox.getItemAt(i));
+      index.add(comboBox.getItemAt(i));
     }
+    model.setSuggestions(index.suggest("", MAX_SUGGESTIONS, () -> false));
+    comboBox.setModel(model);
   }
 
   @Override public void keyTyped(KeyEvent e) {
-    EventQueue.invokeLater(() -> {
-      String text = ((JTextField) e.getComponent()).getText();
-      ComboBoxModel<String> m;
-      if (text.isEmpty()) {
-        m = new DefaultComboBoxModel<>(list.toArray(new String[0]));
-        setSuggestionModel(comboBox, m, "");
-        comboBox.hidePopup();
-      } else {
-        m = getSuggestedModel(list, text);
-        if (m.getSize() == 0 || shouldHide) {
-          comboBox.hidePopup();
-        } else {
-          setSuggestionModel(comboBox, m, text);
-          comboBox.showPopup();
-        }
-      }
-    });
+    EventQueue.invokeLater(() -> suggest(((JTextField) e.getComponent()).getText()));
+  }
+
+  // Looks up the suggestions off the EDT; a newer keystroke cancels the older query.
+  private void suggest(String text) {
+    int gen = generation.incrementAndGet();
+    BooleanSupplier cancelled = () -> generation.get() != gen;
+    CompletableFuture.supplyAsync(() -> index.suggest(text, MAX_SUGGESTIONS, cancelled), executor)
+        .thenAccept(list -> EventQueue.invokeLater(() -> {
+          if (cancelled.getAsBoolean()) {
+            return;
+          }
+          if (text.isEmpty()) {
+            setSuggestionModel(list, "");
+            comboBox.hidePopup();
+          } else if (list.isEmpty()) {
+            comboBox.hidePopup();
+          } else {
+            setSuggestionModel(list, text);
+            // hide first, so that the popup is re-laid out for the new item count
+            comboBox.hidePopup();
+            if (!shouldHide) {
+              comboBox.showPopup();
+            }
+          }
+        }));
   }
 
   @Override public void keyPressed(KeyEvent e) {
@@ -176,19 +220,11 @@ class ComboKeyHandler extends KeyAdapter {
     shouldHide = false;
     switch (e.getKeyCode()) {
       case KeyEvent.VK_RIGHT:
-        for (String s: list) {
-          if (s.startsWith(text)) {
-            textField.setText(s);
-            return;
-          }
-        }
+        index.firstWithPrefix(text).ifPresent(textField::setText);
         break;
       case KeyEvent.VK_ENTER:
-        if (!list.contains(text)) {
-          list.add(text);
-          Collections.sort(list);
-          // setSuggestionModel(comboBox, new DefaultComboBoxModel(list), text);
-          setSuggestionModel(comboBox, getSuggestedModel(list, text), text);
+        if (index.add(text)) {
+          suggest(text);
         }
         shouldHide = true;
         break;
@@ -200,20 +236,201 @@ class ComboKeyHandler extends KeyAdapter {
     }
   }
 
-  private static void setSuggestionModel(JComboBox<String> comboBox, ComboBoxModel<String> mdl, String str) {
-    comboBox.setModel(mdl);
+  private void setSuggestionModel(List<String> list, String str) {
+    model.setSuggestions(list);
     comboBox.setSelectedIndex(-1);
     ((JTextField) comboBox.getEditor().getEditorComponent()).setText(str);
   }
+}
+
+// A ComboBoxModel view of the current top-K suggestions, reused between queries.
+class SuggestionModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+  private List<String> suggestions = Collections.emptyList();
+  private Object selected;
+
+  public void setSuggestions(List<String> list) {
+    int oldSize = suggestions.size();
+    suggestions = list;
+    selected = null;
+    if (oldSize > list.size()) {
+      fireIntervalRemoved(this, list.size(), oldSize - 1);
+    } else if (oldSize < list.size()) {
+      fireIntervalAdded(this, oldSize, list.size() - 1);
+    }
+    int common = Math.min(oldSize, list.size());
+    if (common > 0) {
+      fireContentsChanged(this, 0, common - 1);
+    }
+  }
+
+  @Override public int getSize() {
+    return suggestions.size();
+  }
+
+  @Override public String getElementAt(int index) {
+    return suggestions.get(index);
+  }
+
+  @Override public void setSelectedItem(Object item) {
+    if (!Objects.equals(selected, item)) {
+      selected = item;
+      fireContentsChanged(this, -1, -1);
+    }
+  }
+
+  @Override public Object getSelectedItem() {
+    return selected;
+  }
+}
+
+// A sorted set of words for prefix lookups, plus an optional trigram index
+// for substring (infix) lookups. Queries run on a worker thread while inserts
+// come from the EDT, so both go through a read-write lock.
+class SuggestionIndex {
+  private static final int GRAM = 3;
+  private static final int CHECK_INTERVAL = 1024;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final NavigableSet<String> words = new TreeSet<>();
+  private final List<String> ids = new ArrayList<>();
+  private final Map<Long, IntList> grams = new HashMap<>();
+  private int indexedCount;
+  private boolean infix;
+
+  public boolean add(String word) {
+    lock.writeLock().lock();
+    try {
+      if (!words.add(word)) {
+        return false;
+      }
+      ids.add(word);
+      if (infix) {
+        indexGrams(ids.size() - 1);
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // The trigram index is only kept up to date while infix matching is on;
+  // turning it on catches up on the words added since.
+  public void setInfix(boolean infix) {
+    lock.writeLock().lock();
+    try {
+      this.infix = infix;
+      if (infix) {
+        for (int id = indexedCount; id < ids.size(); id++) {
+          indexGrams(id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
 
-  private static ComboBoxModel<String> getSuggestedModel(List<String> list, String text) {
-    DefaultComboBoxModel<String> m = new DefaultComboBoxModel<>();
-    for (String s: list) {
-      if (s.startsWith(text)) {
-        m.addElement(s);
+  private void indexGrams(int id) {
+    String word = ids.get(id);
+    for (int i = 0; i + GRAM <= word.length(); i++) {
+      IntList p = grams.computeIfAbsent(getGram(word, i), k -> new IntList());
+      // a trigram repeated in the word is posted once
+      if (p.size() == 0 || p.get(p.size() - 1) != id) {
+        p.add(id);
       }
     }
-    return m;
+    indexedCount = id + 1;
+  }
+
+  public Optional<String> firstWithPrefix(String prefix) {
+    lock.readLock().lock();
+    try {
+      return Optional.ofNullable(words.ceiling(prefix)).filter(s -> s.startsWith(prefix));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns up to limit words starting with text in sorted order, followed,
+   * if infix matching is on, by the sorted words that only contain it.
+   * Returns an empty list as soon as cancelled reports true.
+   */
+  public List<String> suggest(String text, int limit, BooleanSupplier cancelled) {
+    lock.readLock().lock();
+    try {
+      List<String> list = new ArrayList<>(limit);
+      for (String s: words.tailSet(text, true)) {
+        if (!s.startsWith(text) || list.size() >= limit) {
+          break;
+        }
+        list.add(s);
+      }
+      if (infix && text.length() >= GRAM && list.size() < limit) {
+        List<String> rest = findInfix(text, limit - list.size(), cancelled);
+        if (Objects.isNull(rest)) {
+          return Collections.emptyList();
+        }
+        list.addAll(rest);
+      }
+      return list;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // The rarest trigram of text narrows the candidates, which are then verified.
+  private List<String> findInfix(String text, int limit, BooleanSupplier cancelled) {
+    IntList candidates = null;
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      IntList p = grams.get(getGram(text, i));
+      if (Objects.isNull(p)) {
+        return Collections.emptyList();
+      }
+      if (Objects.isNull(candidates) || p.size() < candidates.size()) {
+        candidates = p;
+      }
+    }
+    // keep the limit smallest matches in a max-heap
+    PriorityQueue<String> heap = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+    for (int i = 0; i < candidates.size(); i++) {
+      if (i % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+        return null;
+      }
+      String s = ids.get(candidates.get(i));
+      if (!s.startsWith(text) && s.contains(text)) {
+        heap.add(s);
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      }
+    }
+    List<String> list = new ArrayList<>(heap);
+    list.sort(Comparator.naturalOrder());
+    return list;
+  }
+
+  // packs the three chars at offset into one key
+  private static long getGram(String s, int offset) {
+    return (long) s.charAt(offset) << 32 | (long) s.charAt(offset + 1) << 16 | s.charAt(offset + 2);
+  }
+}
+
+class IntList {
+  private int[] values = new int[4];
+  private int size;
+
+  public void add(int v) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = v;
+  }
+
+  public int get(int i) {
+    return values[i];
+  }
+
+  public int size() {
+    return size;
   }
 }
 
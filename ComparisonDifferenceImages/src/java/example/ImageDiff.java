@@ -0,0 +1,360 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares two images of the same size tile by tile.
+ * Tiles are diffed in parallel, and a tile whose hash matches in both
+ * snapshots is skipped without touching its pixels.
+ */
+public final class ImageDiff {
+  public static final int DEFAULT_TILE_SIZE = 64;
+  public static final int EQUAL_MASK = 0x44_FF_FF_FF;
+  private static final int REPEAT = 5;
+  private final int tileSize;
+  private final int tolerance;
+
+  /**
+   * @param tileSize the width and height of a tile in pixels
+   * @param tolerance the largest per-channel difference (0-255) still treated as equal
+   */
+  public ImageDiff(int tileSize, int tolerance) {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("tileSize: " + tileSize);
+    }
+    if (tolerance < 0 || tolerance > 255) {
+      throw new IllegalArgumentException("tolerance: " + tolerance);
+    }
+    this.tileSize = tileSize;
+    this.tolerance = tolerance;
+  }
+
+  public Snapshot snapshot(BufferedImage image) {
+    return new Snapshot(getPixels(image), image.getWidth(), image.getHeight(), tileSize);
+  }
+
+  public Snapshot snapshot(int[] pixels, int width, int height) {
+    return new Snapshot(pixels, width, height, tileSize);
+  }
+
+  public Result compare(Snapshot a, Snapshot b) {
+    return compare(a, b, null);
+  }
+
+  /**
+   * @param out if not null, receives a copy of {@code a} with the equal pixels masked by {@link #EQUAL_MASK}
+   */
+  public Result compare(Snapshot a, Snapshot b, int[] out) {
+    if (a.width != b.width || a.height != b.height || a.tileSize != tileSize || b.tileSize != tileSize) {
+      throw new IllegalArgumentException("size mismatch");
+    }
+    int tilesX = a.getTilesX();
+    int tilesY = a.getTilesY();
+    Rectangle[] dirty = new Rectangle[tilesX * tilesY];
+    LongAdder changed = new LongAdder();
+    LongAdder skipped = new LongAdder();
+    IntStream.range(0, dirty.length).parallel().forEach(tile -> {
+      int x0 = tile % tilesX * tileSize;
+      int y0 = tile / tilesX * tileSize;
+      int x1 = Math.min(x0 + tileSize, a.width);
+      int y1 = Math.min(y0 + tileSize, a.height);
+      if (a.getTileHash(tile) == b.getTileHash(tile)) {
+        skipped.increment();
+        if (Objects.nonNull(out)) {
+          maskTile(a.pixels, out, a.width, x0, y0, x1, y1);
+        }
+        return;
+      }
+      dirty[tile] = diffTile(a.pixels, b.pixels, out, a.width, x0, y0, x1, y1, changed);
+    });
+    List<Rectangle> boxes = new ArrayList<>();
+    for (Rectangle r: dirty) {
+      if (Objects.nonNull(r)) {
+        boxes.add(r);
+      }
+    }
+    return new Result(boxes, changed.sum(), skipped.intValue(), dirty.length);
+  }
+
+  // Returns the bounding box of the changed pixels in the tile, or null if there are none.
+  private Rectangle diffTile(int[] pa, int[] pb, int[] out, int width, int x0, int y0, int x1, int y1, LongAdder changed) {
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = -1;
+    int maxY = -1;
+    int count = 0;
+    for (int y = y0; y < y1; y++) {
+      int row = y * width;
+      for (int i = row + x0; i < row + x1; i++) {
+        int c = pa[i];
+        boolean same = c == pb[i] || isWithinTolerance(c, pb[i]);
+        if (Objects.nonNull(out)) {
+          out[i] = same ? c & EQUAL_MASK : c;
+        }
+        if (!same) {
+          int x = i - row;
+          minX = Math.min(minX, x);
+          maxX = Math.max(maxX, x);
+          minY = Math.min(minY, y);
+          maxY = y;
+          count++;
+        }
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    changed.add(count);
+    return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+  }
+
+  private boolean isWithinTolerance(int c1, int c2) {
+    for (int shift = 0; shift < 32; shift += 8) {
+      int d = (c1 >>> shift & 0xFF) - (c2 >>> shift & 0xFF);
+      if (d > tolerance || -d > tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void maskTile(int[] src, int[] out, int width, int x0, int y0, int x1, int y1) {
+    for (int y = y0; y < y1; y++) {
+      int row = y * width;
+      for (int i = row + x0; i < row + x1; i++) {
+        out[i] = src[i] & EQUAL_MASK;
+      }
+    }
+  }
+
+  public static int[] getPixels(BufferedImage image) {
+    int w = image.getWidth();
+    int h = image.getHeight();
+    if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+      return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+    BufferedImage argb = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = argb.createGraphics();
+    g2.drawImage(image, 0, 0, null);
+    g2.dispose();
+    return ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+  }
+
+  /**
+   * The pixels of one image with lazily computed, cached tile hashes.
+   * Reusing a snapshot of a baseline image across many comparisons hashes it only once.
+   */
+  public static final class Snapshot {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private volatile long[] tileHashes;
+
+    protected Snapshot(int[] pixels, int width, int height, int tileSize) {
+      if (pixels.length < width * height) {
+        throw new IllegalArgumentException("pixels.length < width * height");
+      }
+      this.pixels = pixels;
+      this.width = width;
+      this.height = height;
+      this.tileSize = tileSize;
+    }
+
+    public int getTilesX() {
+      return (width + tileSize - 1) / tileSize;
+    }
+
+    public int getTilesY() {
+      return (height + tileSize - 1) / tileSize;
+    }
+
+    long getTileHash(int tile) {
+      long[] hashes = tileHashes;
+      if (Objects.isNull(hashes)) {
+        hashes = computeTileHashes();
+        tileHashes = hashes;
+      }
+      return hashes[tile];
+    }
+
+    private long[] computeTileHashes() {
+      int tilesX = getTilesX();
+      long[] hashes = new long[tilesX * getTilesY()];
+      IntStream.range(0, hashes.length).parallel().forEach(tile -> {
+        int x0 = tile % tilesX * tileSize;
+        int y0 = tile / tilesX * tileSize;
+        int x1 = Math.min(x0 + tileSize, width);
+        int y1 = Math.min(y0 + tileSize, height);
+        // FNV-1a over whole pixels, 64-bit to keep collisions negligible
+        long h = 0xCBF2_9CE4_8422_2325L;
+        for (int y = y0; y < y1; y++) {
+          int row = y * width;
+          for (int i = row + x0; i < row + x1; i++) {
+            h = (h ^ pixels[i]) * 0x100_0000_01B3L;
+          }
+        }
+        hashes[tile] = h;
+      });
+      return hashes;
+    }
+  }
+
+  public static final class Result {
+    private final List<Rectangle> dirtyTiles;
+    private final long changedPixels;
+    private final int skippedTiles;
+    private final int tileCount;
+
+    protected Result(List<Rectangle> dirtyTiles, long changedPixels, int skippedTiles, int tileCount) {
+      this.dirtyTiles = Collections.unmodifiableList(dirtyTiles);
+      this.changedPixels = changedPixels;
+      this.skippedTiles = skippedTiles;
+      this.tileCount = tileCount;
+    }
+
+    /**
+     * @return the bounding boxes of the changed pixels, one per dirty tile, in row-major tile order
+     */
+    public List<Rectangle> getDirtyTiles() {
+      return dirtyTiles;
+    }
+
+    public long getChangedPixels() {
+      return changedPixels;
+    }
+
+    public int getSkippedTiles() {
+      return skippedTiles;
+    }
+
+    public int getTileCount() {
+      return tileCount;
+    }
+
+    public boolean isIdentical() {
+      return changedPixels == 0;
+    }
+  }
+
+  /**
+   * Headless entry point: {@code ImageDiff a.png b.png [tolerance] [tileSize] [diff.png]}.
+   * Exits with status 1 if the images differ and 2 on a usage or I/O error.
+   * {@code ImageDiff --bench [tolerance] [tileSize]} times synthetic 4K and 8K images instead.
+   */
+  public static void main(String[] args) {
+    if (args.length > 0 && "--bench".equals(args[0])) {
+      int tolerance = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+      int tileSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TILE_SIZE;
+      benchmark(new ImageDiff(tileSize, tolerance));
+      return;
+    }
+    if (args.length < 2) {
+      System.err.println("usage: ImageDiff <a> <b> [tolerance] [tileSize] [diff.png]");
+      System.err.println("       ImageDiff --bench [tolerance] [tileSize]");
+      System.exit(2);
+    }
+    try {
+      BufferedImage ia = ImageIO.read(new File(args[0]));
+      BufferedImage ib = ImageIO.read(new File(args[1]));
+      if (Objects.isNull(ia) || Objects.isNull(ib)) {
+        throw new IOException("unsupported image format");
+      }
+      if (ia.getWidth() != ib.getWidth() || ia.getHeight() != ib.getHeight()) {
+        throw new IOException("image sizes differ");
+      }
+      int tolerance = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+      int tileSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_TILE_SIZE;
+      ImageDiff diff = new ImageDiff(tileSize, tolerance);
+      int w = ia.getWidth();
+      int h = ia.getHeight();
+      int[] out = args.length > 4 ? new int[w * h] : null;
+      long start = System.nanoTime();
+      Result r = diff.compare(diff.snapshot(ia), diff.snapshot(ib), out);
+      double ms = (System.nanoTime() - start) / 1_000_000d;
+      System.out.printf(Locale.ENGLISH, "%dx%d: %d changed pixels, %d/%d dirty tiles, %d skipped by hash, %.1f ms%n",
+          w, h, r.getChangedPixels(), r.getDirtyTiles().size(), r.getTileCount(), r.getSkippedTiles(), ms);
+      for (Rectangle b: r.getDirtyTiles()) {
+        System.out.printf("%d,%d,%d,%d%n", b.x, b.y, b.width, b.height);
+      }
+      if (Objects.nonNull(out)) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, w, h, out, 0, w);
+        ImageIO.write(image, "png", new File(args[4]));
+      }
+      System.exit(r.isIdentical() ? 0 : 1);
+    } catch (IOException | IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(2);
+    }
+  }
+
+  // Compares a 4K and an 8K frame against an identical copy, a copy with a
+  // small changed area and a copy with every pixel changed. "cold" includes
+  // hashing both snapshots, "cached" reuses them as a baseline would be.
+  // Each time is the median of REPEAT runs after one warm-up run.
+  private static void benchmark(ImageDiff diff) {
+    int[][] sizes = {{3840, 2160}, {7680, 4320}};
+    System.out.printf(Locale.ENGLISH, "tileSize=%d, tolerance=%d, %d threads%n",
+        diff.tileSize, diff.tolerance, Runtime.getRuntime().availableProcessors());
+    for (int[] size: sizes) {
+      int w = size[0];
+      int h = size[1];
+      int[] base = new int[w * h];
+      for (int i = 0; i < base.length; i++) {
+        base[i] = 0xFF_00_00_00 | i * 0x9E37_79B1 >>> 8;
+      }
+      int[] other = base.clone();
+      String[] names = {"identical", "small change", "all changed"};
+      for (String name: names) {
+        if ("small change".equals(name)) {
+          for (int y = h / 2; y < h / 2 + 100; y++) {
+            for (int x = w / 2; x < w / 2 + 200; x++) {
+              other[y * w + x] ^= 0xFF;
+            }
+          }
+        } else if ("all changed".equals(name)) {
+          for (int i = 0; i < other.length; i++) {
+            other[i] = base[i] ^ 0xFF;
+          }
+        }
+        double cold = median(() -> diff.compare(diff.snapshot(base, w, h), diff.snapshot(other, w, h)));
+        Snapshot sa = diff.snapshot(base, w, h);
+        Snapshot sb = diff.snapshot(other, w, h);
+        double cached = median(() -> diff.compare(sa, sb));
+        Result r = diff.compare(sa, sb);
+        System.out.printf(Locale.ENGLISH, "%dx%d %-12s: %8d changed, %5d/%d dirty tiles, cold %7.1f ms, cached %7.1f ms%n",
+            w, h, name, r.getChangedPixels(), r.getDirtyTiles().size(), r.getTileCount(), cold, cached);
+      }
+    }
+  }
+
+  private static double median(Runnable task) {
+    task.run();
+    double[] times = new double[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      long start = System.nanoTime();
+      task.run();
+      times[i] = (System.nanoTime() - start) / 1_000_000d;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2];
+  }
+}
@@ -7,8 +7,8 @@ package example;
 import java.awt.*;
 import java.awt.event.ItemEvent;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.awt.image.MemoryImageSource;
+import java.util.List;
 import java.util.stream.Stream;
 import javax.swing.*;
 
@@ -23,11 +23,14 @@ public final class MainPanel extends JPanel {
     int h = iia.getIconHeight();
     int[] pixelsA = getData(iia, w, h);
     int[] pixelsB = getData(iib, w, h);
-    for (int i = 0; i < pixelsA.length; i++) {
-      if (pixelsA[i] == pixelsB[i]) {
-        pixelsA[i] = pixelsA[i] & 0x44_FF_FF_FF;
-      }
-    }
+    // for (int i = 0; i < pixelsA.length; i++) {
+    //   if (pixelsA[i] == pixelsB[i]) {
+    //     pixelsA[i] = pixelsA[i] & 0x44_FF_FF_FF;
+    //   }
+    // }
+    ImageDiff diff = new ImageDiff(ImageDiff.DEFAULT_TILE_SIZE / 4, 0);
+    int[] pixelsD = new int[w * h];
+    ImageDiff.Result result = diff.compare(diff.snapshot(pixelsA, w, h), diff.snapshot(pixelsB, w, h), pixelsD);
 
     JRadioButton ra = new JRadioButton("a.png", true);
     ra.addItemListener(e -> {
@@ -43,13 +46,14 @@ public final class MainPanel extends JPanel {
       }
     });
 
-    MemoryImageSource source = new MemoryImageSource(w, h, pixelsA, 0, w);
+    MemoryImageSource source = new MemoryImageSource(w, h, pixelsD, 0, w);
     JRadioButton rr = new JRadioButton("diff");
     rr.addItemListener(e -> {
       if (e.getStateChange() == ItemEvent.SELECTED) {
-        label.setIcon(new ImageIcon(createImage(source)));
+        label.setIcon(new DiffIcon(createImage(source), result.getDirtyTiles()));
       }
     });
+    label.setToolTipText(String.format("%d changed pixels", result.getChangedPixels()));
 
     JPanel p = new JPanel();
     ButtonGroup bg = new ButtonGroup();
@@ -76,11 +80,11 @@ public final class MainPanel extends JPanel {
 
   private static int[] getData(ImageIcon imageIcon, int w, int h) {
     Image img = imageIcon.getImage();
-    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
     Graphics g = image.createGraphics();
     g.drawImage(img, 0, 0, null);
     g.dispose();
-    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    return ImageDiff.getPixels(image);
     // int[] pixels = new int[w * h];
     // try {
     //   new PixelGrabber(image, 0, 0, width, height, pixels, 0, width).grabPixels();
@@ -109,3 +113,23 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+class DiffIcon extends ImageIcon {
+  private final List<Rectangle> dirtyTiles;
+
+  protected DiffIcon(Image image, List<Rectangle> dirtyTiles) {
+    super(image);
+    this.dirtyTiles = dirtyTiles;
+  }
+
+  @Override public synchronized void paintIcon(Component c, Graphics g, int x, int y) {
+    super.paintIcon(c, g, x, y);
+    Graphics2D g2 = (Graphics2D) g.create();
+    g2.translate(x, y);
+    g2.setPaint(Color.RED);
+    for (Rectangle r: dirtyTiles) {
+      g2.drawRect(r.x, r.y, r.width - 1, r.height - 1);
+    }
+    g2.dispose();
+  }
+}
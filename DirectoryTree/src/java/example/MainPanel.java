@@ -6,15 +6,25 @@ package example;
 
 import java.awt.*;
 import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.filechooser.FileSystemView;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
@@ -25,11 +35,13 @@ public final class MainPanel extends JPanel {
     Stream.of(fileSystemView.getRoots()).forEach(fileSystemRoot -> {
       DefaultMutableTreeNode node = new DefaultMutableTreeNode(fileSystemRoot);
       root.add(node);
-      Stream.of(fileSystemView.getFiles(fileSystemRoot, true))
-          .filter(File::isDirectory)
-          .map(DefaultMutableTreeNode::new)
-          .forEach(node::add);
+      // Stream.of(fileSystemView.getFiles(fileSystemRoot, true))
+      //     .filter(File::isDirectory)
+      //     .map(DefaultMutableTreeNode::new)
+      //     .forEach(node::add);
+      node.add(FolderSelectionListener.makePlaceholder());
     });
+    FileDisplayCache cache = new FileDisplayCache(fileSystemView);
 
     JTree tree = new JTree(treeModel) {
       @Override public void updateUI() {
@@ -52,8 +64,17 @@ public final class MainPanel extends JPanel {
             Object o = node.getUserObject();
             if (o instanceof File) {
               File file = (File) o;
-              c.setIcon(fileSystemView.getSystemIcon(file));
-              c.setText(fileSystemView.getSystemDisplayName(file));
+              // c.setIcon(fileSystemView.getSystemIcon(file));
+              // c.setText(fileSystemView.getSystemDisplayName(file));
+              FileDisplay d = cache.get(file);
+              if (Objects.nonNull(d)) {
+                c.setIcon(d.getIcon());
+                c.setText(d.getDisplayName());
+              } else {
+                // never touch the file system while painting
+                c.setText(file.getName().isEmpty() ? file.getPath() : file.getName());
+                cache.request(file, () -> ((DefaultTreeModel) tree.getModel()).nodeChanged(node));
+              }
               c.setToolTipText(file.getPath());
             }
           }
@@ -65,15 +86,39 @@ public final class MainPanel extends JPanel {
     tree.setRootVisible(false);
     // java - File Browser GUI - Stack Overflow
     // https://stackoverflow.com/questions/6182110/file-browser-gui
-    tree.addTreeSelectionListener(new FolderSelectionListener(fileSystemView));
+    FolderSelectionListener listener = new FolderSelectionListener(fileSystemView);
+    tree.addTreeSelectionListener(listener);
+    tree.addTreeWillExpandListener(listener);
     tree.expandRow(0);
     // tree.setToggleClickCount(1);
 
+    JScrollPane scroll = new JScrollPane(tree);
+    scroll.getViewport().addChangeListener(e -> prefetchVisibleRows(tree, cache));
+
     setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-    add(new JScrollPane(tree));
+    add(scroll);
     setPreferredSize(new Dimension(320, 240));
   }
 
+  // Requests the icons and display names of the rows in the viewport (and one
+  // page below it) before they are painted.
+  private static void prefetchVisibleRows(JTree tree, FileDisplayCache cache) {
+    Rectangle r = tree.getVisibleRect();
+    int first = tree.getClosestRowForLocation(r.x, r.y);
+    int last = tree.getClosestRowForLocation(r.x, r.y + r.height * 2);
+    DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+    for (int row = Math.max(0, first); row <= last; row++) {
+      TreePath path = tree.getPathForRow(row);
+      Object o = Objects.nonNull(path) ? path.getLastPathComponent() : null;
+      if (o instanceof DefaultMutableTreeNode) {
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) o;
+        if (node.getUserObject() instanceof File) {
+          cache.request((File) node.getUserObject(), () -> model.nodeChanged(node));
+        }
+      }
+    }
+  }
+
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
   }
@@ -95,31 +140,59 @@ public final class MainPanel extends JPanel {
   }
 }
 
-class FolderSelectionListener implements TreeSelectionListener {
+// Loads the subdirectories of a folder in the background the first time it
+// is selected or expanded. Until then the folder holds a single placeholder
+// child, so it shows an expand handle without listing the file system.
+class FolderSelectionListener implements TreeSelectionListener, TreeWillExpandListener {
+  private static final String LOADING = "Loading...";
   // private JFrame frame = null;
   private final FileSystemView fileSystemView;
+  private final Set<DefaultMutableTreeNode> loading = new HashSet<>();
 
   protected FolderSelectionListener(FileSystemView fileSystemView) {
     this.fileSystemView = fileSystemView;
   }
 
-  @Override public void valueChanged(TreeSelectionEvent e) {
-    DefaultMutableTreeNode node = (DefaultMutableTreeNode) e.getPath().getLastPathComponent();
-    if (!node.isLeaf()) {
-      return;
-    }
-    File parent = (File) node.getUserObject();
-    if (!parent.isDirectory()) {
-      return;
-    }
+  public static DefaultMutableTreeNode makePlaceholder() {
+    return new DefaultMutableTreeNode(LOADING, false);
+  }
 
-    JTree tree = (JTree) e.getSource();
+  private static boolean isUnloaded(DefaultMutableTreeNode node) {
+    return node.getChildCount() == 1
+        && Objects.equals(((DefaultMutableTreeNode) node.getFirstChild()).getUserObject(), LOADING);
+  }
+
+  @Override public void valueChanged(TreeSelectionEvent e) {
+    // DefaultMutableTreeNode node = (DefaultMutableTreeNode) e.getPath().getLastPathComponent();
+    // if (!node.isLeaf()) {
+    //   return;
+    // }
+    // File parent = (File) node.getUserObject();
+    // if (!parent.isDirectory()) {
+    //   return;
+    // }
+    // JTree tree = (JTree) e.getSource();
     // if (frame == null) {
     //   frame = (JFrame) SwingUtilities.getWindowAncestor(tree);
     //   frame.setGlassPane(new LockingGlassPane());
     // }
     // frame.getGlassPane().setVisible(true);
+    load((JTree) e.getSource(), (DefaultMutableTreeNode) e.getPath().getLastPathComponent());
+  }
+
+  @Override public void treeWillExpand(TreeExpansionEvent e) {
+    load((JTree) e.getSource(), (DefaultMutableTreeNode) e.getPath().getLastPathComponent());
+  }
+
+  @Override public void treeWillCollapse(TreeExpansionEvent e) {
+    /* not needed */
+  }
 
+  private void load(JTree tree, DefaultMutableTreeNode node) {
+    if (!(node.getUserObject() instanceof File) || !isUnloaded(node) || !loading.add(node)) {
+      return;
+    }
+    File parent = (File) node.getUserObject();
     DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
     new BackgroundTask(fileSystemView, parent) {
       @Override protected void process(List<File> chunks) {
@@ -130,10 +203,31 @@ class FolderSelectionListener implements TreeSelectionListener {
           cancel(true);
           return;
         }
-        chunks.stream().map(DefaultMutableTreeNode::new)
-            .forEach(child -> model.insertNodeInto(child, node, node.getChildCount()));
-        // model.reload(parent); // = model.nodeStructureChanged(parent);
-        // tree.expandPath(path);
+        // chunks.stream().map(DefaultMutableTreeNode::new)
+        //     .forEach(child -> model.insertNodeInto(child, node, node.getChildCount()));
+        // insert the whole chunk with a single event, then drop the placeholder,
+        // so the expanded folder never turns into a leaf in between
+        boolean unloaded = isUnloaded(node);
+        int start = node.getChildCount();
+        int[] indices = new int[chunks.size()];
+        for (int i = 0; i < indices.length; i++) {
+          DefaultMutableTreeNode child = new DefaultMutableTreeNode(chunks.get(i));
+          child.add(makePlaceholder());
+          node.add(child);
+          indices[i] = start + i;
+        }
+        model.nodesWereInserted(node, indices);
+        if (unloaded) {
+          model.removeNodeFromParent((DefaultMutableTreeNode) node.getFirstChild());
+        }
+      }
+
+      @Override protected void done() {
+        loading.remove(node);
+        if (isUnloaded(node) && !isCancelled()) {
+          // no subdirectories
+          model.removeNodeFromParent((DefaultMutableTreeNode) node.getFirstChild());
+        }
       }
     }.execute();
   }
@@ -168,6 +262,69 @@ class BackgroundTask extends SwingWorker<String, File> {
   }
 }
 
+class FileDisplay {
+  private final Icon icon;
+  private final String displayName;
+
+  protected FileDisplay(Icon icon, String displayName) {
+    this.icon = icon;
+    this.displayName = displayName;
+  }
+
+  public Icon getIcon() {
+    return icon;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+}
+
+// A bounded LRU cache of system icons and display names. Misses are loaded
+// on a small pool of worker threads, so a slow mount never blocks the EDT.
+class FileDisplayCache {
+  private static final int MAX_ENTRIES = 2048;
+  private final FileSystemView fileSystemView;
+  private final Map<File, FileDisplay> cache = new LinkedHashMap<File, FileDisplay>(64, .75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<File, FileDisplay> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+  private final Set<File> pending = new HashSet<>(); // EDT only
+  private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+    Thread t = new Thread(r, "FileDisplayCache");
+    t.setDaemon(true);
+    return t;
+  });
+
+  protected FileDisplayCache(FileSystemView fileSystemView) {
+    this.fileSystemView = fileSystemView;
+  }
+
+  public FileDisplay get(File file) {
+    synchronized (cache) {
+      return cache.get(file);
+    }
+  }
+
+  // Called on the EDT; onLoad runs on the EDT once the entry is cached.
+  public void request(File file, Runnable onLoad) {
+    if (Objects.nonNull(get(file)) || !pending.add(file)) {
+      return;
+    }
+    executor.execute(() -> {
+      FileDisplay d = new FileDisplay(fileSystemView.getSystemIcon(file), fileSystemView.getSystemDisplayName(file));
+      synchronized (cache) {
+        cache.put(file, d);
+      }
+      EventQueue.invokeLater(() -> {
+        pending.remove(file);
+        onLoad.run();
+      });
+    });
+  }
+}
+
 // class FileTreeCellRenderer extends DefaultTreeCellRenderer {
 //   private final transient TreeCellRenderer renderer;
 //   private final transient FileSystemView fileSystemView;
@@ -6,6 +6,15 @@ package example;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -183,6 +192,8 @@ class ShadowBorder extends AbstractBorder {
 // JDK 1.7.0: JPopupMenu#setBackground(new Color(0x0, true));
 class DropShadowPopupMenu extends JPopupMenu {
   private static final int OFFSET = 4;
+  private static final int BLUR_RADIUS = 2;
+  private static final Color SHADOW_COLOR = new Color(0x50_00_00_00, true);
   private final Dimension dim = new Dimension();
   private transient BufferedImage shadow;
 
@@ -213,15 +224,16 @@ class DropShadowPopupMenu extends JPopupMenu {
     int h = d.height;
     if (dim.width != w || dim.height != h) {
       dim.setSize(w, h);
-      shadow = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-      Graphics2D g2 = shadow.createGraphics();
-      g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-      g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, .2f));
-      g2.setPaint(Color.BLACK);
-      for (int i = 0; i < OFFSET; i++) {
-        g2.fillRoundRect(OFFSET, OFFSET, w - OFFSET - OFFSET + i, h - OFFSET - OFFSET + i, 4, 4);
-      }
-      g2.dispose();
+      // shadow = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+      // Graphics2D g2 = shadow.createGraphics();
+      // g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      // g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, .2f));
+      // g2.setPaint(Color.BLACK);
+      // for (int i = 0; i < OFFSET; i++) {
+      //   g2.fillRoundRect(OFFSET, OFFSET, w - OFFSET - OFFSET + i, h - OFFSET - OFFSET + i, 4, 4);
+      // }
+      // g2.dispose();
+      shadow = ShadowFactory.getShadow(w, h, OFFSET, BLUR_RADIUS, SHADOW_COLOR);
     }
     EventQueue.invokeLater(() -> {
       Container top = getTopLevelAncestor();
@@ -233,3 +245,83 @@ class DropShadowPopupMenu extends JPopupMenu {
   }
 }
 //*/
+
+// The shadow only depends on the size, the offset, the blur radius and the
+// color, so every popup of the same size shares one image. The images are
+// kept as soft references in a small LRU map: the least recently used ones
+// are dropped first and the GC may drop any of them when memory is short.
+final class ShadowFactory {
+  private static final int MAX_ENTRIES = 32;
+  private static final int PARALLEL_THRESHOLD = 256 * 256;
+  private static final Map<List<Integer>, SoftReference<BufferedImage>> CACHE =
+      new LinkedHashMap<List<Integer>, SoftReference<BufferedImage>>(16, .75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<List<Integer>, SoftReference<BufferedImage>> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  private ShadowFactory() {
+    /* Singleton */
+  }
+
+  public static BufferedImage getShadow(int width, int height, int offset, int radius, Color color) {
+    List<Integer> key = Arrays.asList(width, height, offset, radius, color.getRGB());
+    synchronized (CACHE) {
+      BufferedImage shadow = Optional.ofNullable(CACHE.get(key)).map(SoftReference::get).orElse(null);
+      if (Objects.isNull(shadow)) {
+        shadow = makeShadow(width, height, offset, radius, color);
+        CACHE.put(key, new SoftReference<>(shadow));
+      }
+      return shadow;
+    }
+  }
+
+  // The shadow is the rectangle (offset, offset)-(width - radius, height - radius)
+  // blurred with a (2 * radius + 1) box kernel, once along the rows and once
+  // along the columns, so it fades out just at the image border.
+  private static BufferedImage makeShadow(int width, int height, int offset, int radius, Color color) {
+    int[] alpha = new int[width * height];
+    for (int y = offset; y < height - radius; y++) {
+      Arrays.fill(alpha, y * width + offset, y * width + width - radius, 255);
+    }
+    int[] tmp = new int[alpha.length];
+    boolean parallel = alpha.length >= PARALLEL_THRESHOLD;
+    rows(height, parallel).forEach(y -> boxBlur(alpha, tmp, y * width, 1, width, radius));
+    rows(width, parallel).forEach(x -> boxBlur(tmp, alpha, x, width, height, radius));
+
+    BufferedImage shadow = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    int[] pixels = ((DataBufferInt) shadow.getRaster().getDataBuffer()).getData();
+    int rgb = color.getRGB() & 0xFF_FF_FF;
+    int a = color.getAlpha();
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = alpha[i] * a / 255 << 24 | rgb;
+    }
+    return shadow;
+  }
+
+  private static IntStream rows(int count, boolean parallel) {
+    IntStream s = IntStream.range(0, count);
+    return parallel ? s.parallel() : s;
+  }
+
+  // Running sum over one row or column (start, stride, length) of src,
+  // the pixels outside the image count as transparent.
+  private static void boxBlur(int[] src, int[] dst, int start, int stride, int length, int radius) {
+    int size = radius + radius + 1;
+    int sum = 0;
+    for (int i = 0; i < Math.min(radius, length); i++) {
+      sum += src[start + i * stride];
+    }
+    for (int i = 0; i < length; i++) {
+      int in = i + radius;
+      if (in < length) {
+        sum += src[start + in * stride];
+      }
+      int out = i - radius - 1;
+      if (out >= 0) {
+        sum -= src[start + out * stride];
+      }
+      dst[start + i * stride] = sum / size;
+    }
+  }
+}
@@ -5,17 +5,31 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
+import org.w3c.dom.Node;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
@@ -25,7 +39,7 @@ public final class MainPanel extends JPanel {
     label.setIcon(new ImageIcon(url));
     label.setBorder(BorderFactory.createTitledBorder("duke.running.gif"));
 
-    Box box = Box.createHorizontalBox();
+    Box box = Box.createVerticalBox();
     box.setBorder(BorderFactory.createTitledBorder("Extract frames from Animated GIF"));
 
     // [JDK-8080225] FileInput/OutputStream/FileChannel cleanup should be improved - Java Bug System
@@ -35,12 +49,47 @@ public final class MainPanel extends JPanel {
     // URL url = getClass().getResource("duke.running.gif");
     // try (InputStream is = Files.newInputStream(Paths.get(url.toURI()));
     //      ImageInputStream iis = ImageIO.createImageInputStream(is)) {
-    try (ImageInputStream iis = ImageIO.createImageInputStream(url.openStream())) {
-      loadFromStream(iis).stream().map(ImageIcon::new).map(JLabel::new).forEach(box::add);
-    } catch (IOException ex) {
-      ex.printStackTrace();
-      label.setText(ex.getMessage());
-    }
+    // try (ImageInputStream iis = ImageIO.createImageInputStream(url.openStream())) {
+    //   loadFromStream(iis).stream().map(ImageIcon::new).map(JLabel::new).forEach(box::add);
+    // } catch (IOException ex) {
+    //   ex.printStackTrace();
+    //   label.setText(ex.getMessage());
+    // }
+    List<GifFrameSource> sources = new ArrayList<>();
+    Stream.of("duke.running", "no_disposal_specified", "do_not_dispose", "restore_to_background_color", "restore_to_previous")
+        .forEach(name -> {
+          Box row = Box.createHorizontalBox();
+          row.setAlignmentX(Component.LEFT_ALIGNMENT);
+          box.add(row);
+          try {
+            // the source stays open: the frame icons decode evicted frames again
+            // GifFrameSource source = new GifFrameSource(ImageIO.createImageInputStream(getClass().getResource(name + ".gif").openStream()));
+            GifFrameSource source = GifFrameSource.open(getClass().getResource(name + ".gif"));
+            sources.add(source);
+            new FrameLoadTask(source) {
+              @Override protected void process(List<Integer> chunks) {
+                chunks.forEach(i -> row.add(new JLabel(new GifFrameIcon(source, i))));
+                row.revalidate();
+              }
+            }.execute();
+          } catch (IOException ex) {
+            ex.printStackTrace();
+            row.add(new JLabel(ex.getMessage()));
+          }
+        });
+    // the sources are closed with the window
+    addHierarchyListener(e -> {
+      boolean b = (e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0;
+      if (b && !e.getComponent().isDisplayable()) {
+        for (GifFrameSource source: sources) {
+          try {
+            source.close();
+          } catch (IOException ex) {
+            ex.printStackTrace();
+          }
+        }
+      }
+    });
     add(label, BorderLayout.WEST);
     add(new JScrollPane(box));
     setPreferredSize(new Dimension(320, 240));
@@ -70,23 +119,23 @@ public final class MainPanel extends JPanel {
   //   return list;
   // }
 
-  private static List<BufferedImage> loadFromStream(ImageInputStream imageStream) throws IOException {
-    Iterable<ImageReader> it = () -> ImageIO.getImageReaders(imageStream);
-    ImageReader reader = StreamSupport.stream(it.spliterator(), false)
-        .filter(MainPanel::checkGifFormat)
-        .findFirst()
-        .orElseThrow(() -> new IOException("Can not read image format!"));
-    reader.setInput(imageStream, false, false);
-    List<BufferedImage> list = new ArrayList<>();
-    for (int i = 0; i < reader.getNumImages(true); i++) {
-      IIOImage frame = reader.readAll(i, null);
-      list.add((BufferedImage) frame.getRenderedImage());
-    }
-    reader.dispose();
-    return list;
-  }
+  // private static List<BufferedImage> loadFromStream(ImageInputStream imageStream) throws IOException {
+  //   Iterable<ImageReader> it = () -> ImageIO.getImageReaders(imageStream);
+  //   ImageReader reader = StreamSupport.stream(it.spliterator(), false)
+  //       .filter(MainPanel::checkGifFormat)
+  //       .findFirst()
+  //       .orElseThrow(() -> new IOException("Can not read image format!"));
+  //   reader.setInput(imageStream, false, false);
+  //   List<BufferedImage> list = new ArrayList<>();
+  //   for (int i = 0; i < reader.getNumImages(true); i++) {
+  //     IIOImage frame = reader.readAll(i, null);
+  //     list.add((BufferedImage) frame.getRenderedImage());
+  //   }
+  //   reader.dispose();
+  //   return list;
+  // }
 
-  private static boolean checkGifFormat(ImageReader reader) {
+  public static boolean checkGifFormat(ImageReader reader) {
     String metaFormat = reader.getOriginatingProvider().getNativeImageMetadataFormatName();
     String name;
     try {
@@ -116,3 +165,344 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// Decodes the frames of an animated GIF one at a time, without scanning the
+// whole stream first, and composites each frame on top of the previous ones
+// according to the disposal method of the previous frame. Only the frames
+// decoded last are kept, but every KEYFRAME_INTERVAL-th frame is kept with
+// the decoder state after it, so asking for an evicted frame restarts the
+// decoding from the nearest keyframe instead of the first frame.
+// The cache has its own lock, so getCachedFrame(int) never waits for a decode.
+class GifFrameSource implements Iterable<BufferedImage>, Closeable {
+  private static final int MAX_CACHED_FRAMES = 16;
+  private static final int KEYFRAME_INTERVAL = 8;
+  private static final String STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+  private static final String IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+  private final InputStream input;
+  private final ImageInputStream stream;
+  private final ImageReader reader;
+  private final Map<Integer, BufferedImage> cache = new LinkedHashMap<Integer, BufferedImage>(32, .75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+      return size() > MAX_CACHED_FRAMES;
+    }
+  };
+  private final NavigableMap<Integer, Keyframe> keyframes = new TreeMap<>();
+  private volatile Dimension screen;
+  private BufferedImage canvas;
+  private BufferedImage previous;
+  private String disposal = "none";
+  private final Rectangle disposalBounds = new Rectangle();
+  private int nextIndex;
+  private int frameCount = -1;
+  private boolean closed;
+
+  private GifFrameSource(InputStream input, ImageInputStream stream) throws IOException {
+    this.input = input;
+    this.stream = stream;
+    Iterable<ImageReader> it = () -> ImageIO.getImageReaders(stream);
+    reader = StreamSupport.stream(it.spliterator(), false)
+        .filter(MainPanel::checkGifFormat)
+        .findFirst()
+        .orElseThrow(() -> new IOException("Can not read image format!"));
+    reader.setInput(stream, false, false);
+    Node root = reader.getStreamMetadata().getAsTree(STREAM_FORMAT);
+    Node lsd = getChild(root, "LogicalScreenDescriptor");
+    screen = new Dimension(getInt(lsd, "logicalScreenWidth"), getInt(lsd, "logicalScreenHeight"));
+  }
+
+  // Closing an ImageInputStream does not close the stream it wraps,
+  // so the source keeps both and closes both.
+  public static GifFrameSource open(URL url) throws IOException {
+    InputStream input = url.openStream();
+    ImageInputStream stream = null;
+    try {
+      stream = ImageIO.createImageInputStream(input);
+      if (Objects.isNull(stream)) {
+        throw new IOException("Can not create an ImageInputStream: " + url);
+      }
+      return new GifFrameSource(input, stream);
+    } catch (IOException ex) {
+      if (Objects.nonNull(stream)) {
+        stream.close();
+      }
+      input.close();
+      throw ex;
+    }
+  }
+
+  // Returns -1 until the end of the stream has been reached.
+  public synchronized int getFrameCount() {
+    return frameCount;
+  }
+
+  public Dimension getSize() {
+    return new Dimension(screen);
+  }
+
+  // Returns the frame if it is cached, without decoding.
+  public BufferedImage getCachedFrame(int index) {
+    synchronized (cache) {
+      return cache.get(index);
+    }
+  }
+
+  // Returns the composited frame, or null if the animation has fewer frames
+  // or the source is closed. May decode, so it is not called on the EDT.
+  public synchronized BufferedImage getFrame(int index) throws IOException {
+    BufferedImage frame = getCachedFrame(index);
+    if (Objects.nonNull(frame) || closed) {
+      return frame;
+    }
+    Map.Entry<Integer, Keyframe> key = keyframes.floorEntry(index);
+    if (Objects.nonNull(key) && key.getKey() == index) {
+      putCache(index, key.getValue().image);
+      return key.getValue().image;
+    }
+    if (index < nextIndex || Objects.nonNull(key) && key.getKey() >= nextIndex) {
+      seek(key);
+    }
+    while (nextIndex <= index) {
+      if (!decodeNext()) {
+        return null;
+      }
+    }
+    return getCachedFrame(index);
+  }
+
+  @Override public Iterator<BufferedImage> iterator() {
+    return new Iterator<BufferedImage>() {
+      private int index;
+
+      @Override public boolean hasNext() {
+        try {
+          return Objects.nonNull(getFrame(index));
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+
+      @Override public BufferedImage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          return getFrame(index++);
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+    };
+  }
+
+  @Override public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    synchronized (cache) {
+      cache.clear();
+    }
+    keyframes.clear();
+    reader.dispose();
+    try {
+      stream.close();
+    } finally {
+      input.close();
+    }
+  }
+
+  // Restores the decoder state after the keyframe, or rewinds if there is none.
+  private void seek(Map.Entry<Integer, Keyframe> key) {
+    if (Objects.isNull(key)) {
+      canvas = null;
+      previous = null;
+      disposal = "none";
+      nextIndex = 0;
+      return;
+    }
+    Keyframe kf = key.getValue();
+    canvas = copy(kf.image);
+    previous = kf.previous;
+    disposal = kf.disposal;
+    disposalBounds.setBounds(kf.disposalBounds);
+    nextIndex = key.getKey() + 1;
+  }
+
+  private void putCache(int index, BufferedImage frame) {
+    synchronized (cache) {
+      cache.put(index, frame);
+    }
+  }
+
+  private boolean decodeNext() throws IOException {
+    if (frameCount >= 0 && nextIndex >= frameCount) {
+      return false;
+    }
+    BufferedImage image;
+    Node root;
+    try {
+      image = reader.read(nextIndex);
+      root = reader.getImageMetadata(nextIndex).getAsTree(IMAGE_FORMAT);
+    } catch (IndexOutOfBoundsException ex) {
+      frameCount = nextIndex;
+      return false;
+    }
+    Node desc = getChild(root, "ImageDescriptor");
+    int x = getInt(desc, "imageLeftPosition");
+    int y = getInt(desc, "imageTopPosition");
+    if (Objects.isNull(canvas)) {
+      int w = Math.max(screen.width, x + image.getWidth());
+      int h = Math.max(screen.height, y + image.getHeight());
+      screen = new Dimension(w, h);
+      canvas = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    }
+    Graphics2D g2 = canvas.createGraphics();
+    // dispose the previous frame before drawing this one
+    if ("restoreToBackgroundColor".equals(disposal)) {
+      g2.setComposite(AlphaComposite.Clear);
+      g2.fill(disposalBounds);
+      g2.setComposite(AlphaComposite.SrcOver);
+    } else if ("restoreToPrevious".equals(disposal) && Objects.nonNull(previous)) {
+      g2.setComposite(AlphaComposite.Src);
+      g2.drawImage(previous, 0, 0, null);
+      g2.setComposite(AlphaComposite.SrcOver);
+    }
+    Node gce = getChild(root, "GraphicControlExtension");
+    disposal = Objects.nonNull(gce) ? getAttribute(gce, "disposalMethod") : "none";
+    disposalBounds.setBounds(x, y, image.getWidth(), image.getHeight());
+    if ("restoreToPrevious".equals(disposal)) {
+      previous = copy(canvas);
+    }
+    g2.drawImage(image, x, y, null);
+    g2.dispose();
+    // the cached frames and keyframes are never drawn into, so they are shared
+    BufferedImage frame = copy(canvas);
+    putCache(nextIndex, frame);
+    if (nextIndex % KEYFRAME_INTERVAL == 0 && !keyframes.containsKey(nextIndex)) {
+      keyframes.put(nextIndex, new Keyframe(frame, previous, disposal, disposalBounds));
+    }
+    nextIndex++;
+    return true;
+  }
+
+  private static BufferedImage copy(BufferedImage src) {
+    BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+    src.copyData(dst.getRaster());
+    return dst;
+  }
+
+  private static Node getChild(Node parent, String name) {
+    for (Node n = parent.getFirstChild(); Objects.nonNull(n); n = n.getNextSibling()) {
+      if (name.equals(n.getNodeName())) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  private static String getAttribute(Node node, String name) {
+    Node n = Objects.nonNull(node) ? node.getAttributes().getNamedItem(name) : null;
+    return Objects.nonNull(n) ? n.getNodeValue() : "";
+  }
+
+  private static int getInt(Node node, String name) {
+    String v = getAttribute(node, name);
+    return v.isEmpty() ? 0 : Integer.parseInt(v);
+  }
+
+  // A decoded frame and the decoder state right after it.
+  private static class Keyframe {
+    protected final BufferedImage image;
+    protected final BufferedImage previous;
+    protected final String disposal;
+    protected final Rectangle disposalBounds;
+
+    protected Keyframe(BufferedImage image, BufferedImage previous, String disposal, Rectangle disposalBounds) {
+      this.image = image;
+      this.previous = previous;
+      this.disposal = disposal;
+      this.disposalBounds = new Rectangle(disposalBounds);
+    }
+  }
+}
+
+// Never decodes on the EDT: a frame that is not cached is painted as a
+// placeholder and decoded by a SwingWorker, which repaints the component.
+// The icon keeps a soft reference to its frame, so the visible icons do not
+// keep evicting each other from the small cache of the source.
+class GifFrameIcon implements Icon {
+  private static final Color PLACEHOLDER_COLOR = new Color(0xEE_EE_EE);
+  private final GifFrameSource source;
+  private final int index;
+  private SoftReference<BufferedImage> frame = new SoftReference<>(null);
+  private boolean loading;
+
+  protected GifFrameIcon(GifFrameSource source, int index) {
+    this.source = source;
+    this.index = index;
+  }
+
+  @Override public void paintIcon(Component c, Graphics g, int x, int y) {
+    BufferedImage image = frame.get();
+    if (Objects.isNull(image)) {
+      image = source.getCachedFrame(index);
+      frame = new SoftReference<>(image);
+    }
+    if (Objects.nonNull(image)) {
+      g.drawImage(image, x, y, c);
+      return;
+    }
+    g.setColor(PLACEHOLDER_COLOR);
+    g.fillRect(x, y, getIconWidth(), getIconHeight());
+    if (!loading) {
+      loading = true;
+      new SwingWorker<BufferedImage, Void>() {
+        @Override protected BufferedImage doInBackground() throws IOException {
+          return source.getFrame(index);
+        }
+
+        @Override protected void done() {
+          loading = false;
+          try {
+            BufferedImage decoded = get();
+            if (Objects.nonNull(decoded)) {
+              frame = new SoftReference<>(decoded);
+              c.repaint();
+            }
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            UIManager.getLookAndFeel().provideErrorFeedback(c);
+          }
+        }
+      }.execute();
+    }
+  }
+
+  @Override public int getIconWidth() {
+    return source.getSize().width;
+  }
+
+  @Override public int getIconHeight() {
+    return source.getSize().height;
+  }
+}
+
+// Walks the frames in the background and publishes each index as soon as
+// its frame is decoded, so the previews appear one by one.
+class FrameLoadTask extends SwingWorker<Integer, Integer> {
+  private final GifFrameSource source;
+
+  protected FrameLoadTask(GifFrameSource source) {
+    super();
+    this.source = source;
+  }
+
+  @Override protected Integer doInBackground() throws IOException {
+    int i = 0;
+    while (!isCancelled() && Objects.nonNull(source.getFrame(i))) {
+      publish(i++);
+    }
+    return i;
+  }
+}
@@ -13,6 +13,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 import javax.swing.*;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.filechooser.FileSystemView;
@@ -39,7 +41,8 @@ public final class MainPanel extends JPanel {
           .map(DefaultMutableTreeNode::new)
           .forEach(node::add);
     });
-    treeModel.addTreeModelListener(new CheckBoxStatusUpdateListener());
+    CheckBoxStatusUpdateListener statusListener = new CheckBoxStatusUpdateListener();
+    treeModel.addTreeModelListener(statusListener);
 
     JTree tree = new JTree(treeModel) {
       @Override public void updateUI() {
@@ -47,10 +50,34 @@ public final class MainPanel extends JPanel {
         setCellEditor(null);
         super.updateUI();
         // ???#1: JDK 1.6.0 bug??? Nimbus LnF
-        setCellRenderer(new FileTreeCellRenderer(fileSystemView));
-        setCellEditor(new CheckBoxNodeEditor(fileSystemView));
+        setCellRenderer(new FileTreeCellRenderer(fileSystemView, statusListener));
+        setCellEditor(new CheckBoxNodeEditor(fileSystemView, statusListener));
       }
     };
+    treeModel.addTreeModelListener(new TreeModelListener() {
+      @Override public void treeNodesChanged(TreeModelEvent e) {
+        // the descendants of the changed node follow its status, repaint them too
+        Object[] children = e.getChildren();
+        TreePath path = e.getTreePath();
+        if (Objects.nonNull(children) && children.length > 0) {
+          path = path.pathByAddingChild(children[0]);
+        }
+        int y = Optional.ofNullable(tree.getPathBounds(path)).map(r -> r.y).orElse(0);
+        tree.repaint(0, y, tree.getWidth(), tree.getHeight() - y);
+      }
+
+      @Override public void treeNodesInserted(TreeModelEvent e) {
+        /* not needed */
+      }
+
+      @Override public void treeNodesRemoved(TreeModelEvent e) {
+        /* not needed */
+      }
+
+      @Override public void treeStructureChanged(TreeModelEvent e) {
+        /* not needed */
+      }
+    });
     tree.setRootVisible(false);
     tree.addTreeSelectionListener(new FolderSelectionListener(fileSystemView));
 
@@ -199,10 +226,12 @@ class FileTreeCellRenderer implements TreeCellRenderer {
   private final DefaultTreeCellRenderer renderer = new DefaultTreeCellRenderer();
   private final TriStateCheckBox checkBox = new TriStateCheckBox();
   private final FileSystemView fileSystemView;
+  private final CheckBoxStatusUpdateListener statusListener;
 
-  protected FileTreeCellRenderer(FileSystemView fileSystemView) {
+  protected FileTreeCellRenderer(FileSystemView fileSystemView, CheckBoxStatusUpdateListener statusListener) {
     super();
     this.fileSystemView = fileSystemView;
+    this.statusListener = statusListener;
     panel.setFocusable(false);
     panel.setRequestFocusEnabled(false);
     panel.setOpaque(false);
@@ -219,7 +248,9 @@ class FileTreeCellRenderer implements TreeCellRenderer {
       Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
       if (userObject instanceof CheckBoxNode) {
         CheckBoxNode node = (CheckBoxNode) userObject;
-        if (node.getStatus() == Status.INDETERMINATE) {
+        // the status is resolved lazily, the user object may be stale
+        Status status = statusListener.getStatus((DefaultMutableTreeNode) value);
+        if (status == Status.INDETERMINATE) {
           checkBox.setIcon(new IndeterminateIcon());
         } else {
           checkBox.setIcon(null);
@@ -228,7 +259,7 @@ class FileTreeCellRenderer implements TreeCellRenderer {
         l.setIcon(fileSystemView.getSystemIcon(file));
         l.setText(fileSystemView.getSystemDisplayName(file));
         l.setToolTipText(file.getPath());
-        checkBox.setSelected(node.getStatus() == Status.SELECTED);
+        checkBox.setSelected(status == Status.SELECTED);
       }
       panel.add(l);
       return panel;
@@ -242,11 +273,13 @@ class CheckBoxNodeEditor extends AbstractCellEditor implements TreeCellEditor {
   private final DefaultTreeCellRenderer renderer = new DefaultTreeCellRenderer();
   private final TriStateCheckBox checkBox = new TriStateCheckBox();
   private final transient FileSystemView fileSystemView;
+  private final transient CheckBoxStatusUpdateListener statusListener;
   private File file;
 
-  protected CheckBoxNodeEditor(FileSystemView fileSystemView) {
+  protected CheckBoxNodeEditor(FileSystemView fileSystemView, CheckBoxStatusUpdateListener statusListener) {
     super();
     this.fileSystemView = fileSystemView;
+    this.statusListener = statusListener;
     checkBox.setOpaque(false);
     checkBox.setFocusable(false);
     checkBox.addActionListener(e -> stopCellEditing());
@@ -265,7 +298,9 @@ class CheckBoxNodeEditor extends AbstractCellEditor implements TreeCellEditor {
       Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
       if (userObject instanceof CheckBoxNode) {
         CheckBoxNode node = (CheckBoxNode) userObject;
-        if (node.getStatus() == Status.INDETERMINATE) {
+        // the status is resolved lazily, the user object may be stale
+        Status status = statusListener.getStatus((DefaultMutableTreeNode) value);
+        if (status == Status.INDETERMINATE) {
           checkBox.setIcon(new IndeterminateIcon());
         } else {
           checkBox.setIcon(null);
@@ -273,7 +308,7 @@ class CheckBoxNodeEditor extends AbstractCellEditor implements TreeCellEditor {
         file = node.getFile();
         l.setIcon(fileSystemView.getSystemIcon(file));
         l.setText(fileSystemView.getSystemDisplayName(file));
-        checkBox.setSelected(node.getStatus() == Status.SELECTED);
+        checkBox.setSelected(status == Status.SELECTED);
       }
       panel.add(l);
       return panel;
@@ -345,7 +380,9 @@ class FolderSelectionListener implements TreeSelectionListener {
       return;
     }
 
-    Status parentStatus = check.getStatus() == Status.SELECTED ? Status.SELECTED : Status.DESELECTED;
+    // Status parentStatus = check.getStatus() == Status.SELECTED ? Status.SELECTED : Status.DESELECTED;
+    // the inserted nodes take the parent's status in CheckBoxStatusUpdateListener#treeNodesInserted
+    Status parentStatus = Status.DESELECTED;
     DefaultTreeModel model = (DefaultTreeModel) ((JTree) e.getSource()).getModel();
     BackgroundTask worker = new BackgroundTask(fileSystemView, parent) {
       @Override protected void process(List<File> chunks) {
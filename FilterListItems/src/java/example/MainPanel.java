@@ -8,12 +8,17 @@ import java.awt.*;
 import java.awt.image.FilteredImageSource;
 import java.awt.image.ImageProducer;
 import java.awt.image.RGBImageFilter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.event.DocumentEvent;
@@ -32,7 +37,8 @@ public final class MainPanel extends JPanel {
     new ListItem("wi0124-32.png"),
     new ListItem("wi0126-32.png")
   };
-  private final DefaultListModel<ListItem> model = new DefaultListModel<>();
+  // private final DefaultListModel<ListItem> model = new DefaultListModel<>();
+  private final FilteredListModel<ListItem> model = new FilteredListModel<>(defaultModel);
   private final JList<ListItem> list = new JList<ListItem>(model) {
     @Override public void updateUI() {
       setSelectionForeground(null); // Nimbus
@@ -53,9 +59,9 @@ public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout(5, 5));
 
-    for (ListItem item: defaultModel) {
-      model.addElement(item);
-    }
+    // for (ListItem item: defaultModel) {
+    //   model.addElement(item);
+    // }
 
     field.getDocument().addDocumentListener(new DocumentListener() {
       @Override public void insertUpdate(DocumentEvent e) {
@@ -79,7 +85,7 @@ public final class MainPanel extends JPanel {
 
   private Optional<Pattern> getPattern() {
     try {
-      return Optional.ofNullable(field.getText()).filter(s -> !s.isEmpty()).map(Pattern::compile);
+      return Optional.ofNullable(field.getText()).map(Pattern::compile);
     } catch (PatternSyntaxException ex) {
       return Optional.empty();
     }
@@ -88,8 +94,9 @@ public final class MainPanel extends JPanel {
   public void filter() {
     getPattern().ifPresent(pattern -> {
       List<ListItem> selected = list.getSelectedValuesList();
-      model.clear();
-      Stream.of(defaultModel).filter(item -> pattern.matcher(item.title).find()).forEach(model::addElement);
+      // model.clear();
+      // Stream.of(defaultModel).filter(item -> pattern.matcher(item.title).find()).forEach(model::addElement);
+      model.setFilter(item -> pattern.matcher(item.title).find());
       // for (ListItem item: defaultModel) {
       //   if (!pattern.matcher(item.title).find()) {
       //     model.removeElement(item);
@@ -97,10 +104,11 @@ public final class MainPanel extends JPanel {
       //     model.addElement(item);
       //   }
       // }
-      for (ListItem item: selected) {
-        int i = model.indexOf(item);
-        list.addSelectionInterval(i, i);
-      }
+      // for (ListItem item: selected) {
+      //   int i = model.indexOf(item);
+      //   list.addSelectionInterval(i, i);
+      // }
+      model.restoreSelection(list.getSelectionModel(), selected);
     });
   }
 
@@ -124,6 +132,69 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// An index view over a fixed array of items. setFilter() tests the items in
+// parallel, replaces the view with the matching indices and fires a single
+// contentsChanged event for the rows in both views, plus one intervalRemoved
+// or intervalAdded event for the difference in size.
+class FilteredListModel<E> extends AbstractListModel<E> {
+  private static final int PARALLEL_THRESHOLD = 4096;
+  private final E[] items;
+  private int[] view;
+
+  protected FilteredListModel(E[] items) {
+    super();
+    this.items = items.clone();
+    this.view = IntStream.range(0, items.length).toArray();
+  }
+
+  public void setFilter(Predicate<? super E> filter) {
+    IntStream indices = IntStream.range(0, items.length);
+    if (items.length >= PARALLEL_THRESHOLD) {
+      indices = indices.parallel();
+    }
+    int oldSize = view.length;
+    view = indices.filter(i -> filter.test(items[i])).toArray();
+    int newSize = view.length;
+    if (oldSize > newSize) {
+      fireIntervalRemoved(this, newSize, oldSize - 1);
+    } else if (oldSize < newSize) {
+      fireIntervalAdded(this, oldSize, newSize - 1);
+    }
+    int common = Math.min(oldSize, newSize);
+    if (common > 0) {
+      fireContentsChanged(this, 0, common - 1);
+    }
+  }
+
+  // Selects the given items again if they are still in the view, looking them
+  // up by identity and adding each run of consecutive rows as one interval.
+  public void restoreSelection(ListSelectionModel selectionModel, Collection<? extends E> selected) {
+    Set<Object> set = Collections.newSetFromMap(new IdentityHashMap<>(selected.size() * 2));
+    set.addAll(selected);
+    selectionModel.setValueIsAdjusting(true);
+    selectionModel.clearSelection();
+    int start = -1;
+    for (int i = 0; i <= view.length; i++) {
+      boolean hit = i < view.length && set.contains(items[view[i]]);
+      if (hit && start < 0) {
+        start = i;
+      } else if (!hit && start >= 0) {
+        selectionModel.addSelectionInterval(start, i - 1);
+        start = -1;
+      }
+    }
+    selectionModel.setValueIsAdjusting(false);
+  }
+
+  @Override public int getSize() {
+    return view.length;
+  }
+
+  @Override public E getElementAt(int index) {
+    return items[view[index]];
+  }
+}
+
 class ListItem {
   public final ImageIcon nicon;
   public final ImageIcon sicon;
@@ -6,7 +6,9 @@ package example;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
 
@@ -104,8 +106,8 @@ class ScrollAction extends AbstractAction {
   private static final double SIZE = 32d;
   private final Point vec;
   private final JScrollPane scrollPane;
-  private final Timer scroller = new Timer(5, null);
-  private transient ActionListener listener;
+  // private final Timer scroller = new Timer(5, null);
+  // private transient ActionListener listener;
 
   protected ScrollAction(String name, JScrollPane scrollPane, Point vec) {
     super(name);
@@ -118,32 +120,49 @@ class ScrollAction extends AbstractAction {
   }
 
   protected void start() {
-    if (scroller.isRunning()) {
-      return;
-    }
+    // if (scroller.isRunning()) {
+    //   return;
+    // }
     JViewport vport = scrollPane.getViewport();
     JComponent v = (JComponent) vport.getView();
+    AnimationClock clock = AnimationClock.getInstance();
+    if (clock.isRunning(v)) {
+      return;
+    }
     int w = vport.getWidth();
     int h = vport.getHeight();
     int sx = vport.getViewPosition().x;
     int sy = vport.getViewPosition().y;
     Rectangle rect = new Rectangle(w, h);
-    scroller.removeActionListener(listener);
+    // scroller.removeActionListener(listener);
     AtomicInteger counter = new AtomicInteger((int) SIZE);
-    listener = e -> {
-      double a = easeInOut(counter.getAndDecrement() / SIZE);
+    // listener = e -> {
+    //   double a = easeInOut(counter.getAndDecrement() / SIZE);
+    //   int dx = (int) (w - a * w + .5);
+    //   int dy = (int) (h - a * h + .5);
+    //   if (counter.get() <= 0) {
+    //     dx = w;
+    //     dy = h;
+    //     scroller.stop();
+    //   }
+    //   rect.setLocation(sx + vec.x * dx, sy + vec.y * dy);
+    //   v.scrollRectToVisible(rect);
+    // };
+    // scroller.addActionListener(listener);
+    // scroller.start();
+    clock.start(v, 5, steps -> {
+      int c = counter.addAndGet(-steps);
+      double a = easeInOut(Math.max(0, c) / SIZE);
       int dx = (int) (w - a * w + .5);
       int dy = (int) (h - a * h + .5);
-      if (counter.get() <= 0) {
+      if (c <= 0) {
         dx = w;
         dy = h;
-        scroller.stop();
       }
       rect.setLocation(sx + vec.x * dx, sy + vec.y * dy);
       v.scrollRectToVisible(rect);
-    };
-    scroller.addActionListener(listener);
-    scroller.start();
+      return c > 0;
+    });
   }
 
   protected static double easeInOut(double t) {
@@ -161,3 +180,104 @@ class ScrollAction extends AbstractAction {
     return a * a * a;
   }
 }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
@@ -7,12 +7,20 @@ package example;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
@@ -50,10 +58,11 @@ public final class MainPanel extends JPanel {
       transIndex = -1;
     }
 
-    int w = image.getWidth();
-    int h = image.getHeight();
-    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
-    label2.setIcon(new ImageIcon(makeTestImage(dataBuffer, colorModel, w, h, transIndex)));
+    // int w = image.getWidth();
+    // int h = image.getHeight();
+    // DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    // label2.setIcon(new ImageIcon(makeTestImage(dataBuffer, colorModel, w, h, transIndex)));
+    label2.setIcon(new ImageIcon(PaletteLookup.highlight(image, transIndex, Color.RED.getRGB())));
 
     JPanel box = new JPanel(new GridBagLayout());
     if (Objects.nonNull(indexColorModel)) {
@@ -75,13 +84,38 @@ public final class MainPanel extends JPanel {
       box.add(new JLabel("No IndexColorModel"), new GridBagConstraints());
     }
 
+    JLabel result = new JLabel(" ");
+    JButton benchButton = new JButton("16MP benchmark");
+    benchButton.addActionListener(e -> {
+      benchButton.setEnabled(false);
+      result.setText("running...");
+      new LookupBenchmark() {
+        @Override protected void done() {
+          try {
+            result.setText(get());
+          } catch (InterruptedException ex) {
+            result.setText("Interrupted");
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            result.setText(Objects.toString(ex.getCause()));
+          }
+          benchButton.setEnabled(true);
+        }
+      }.execute();
+    });
+    JPanel bp = new JPanel(new BorderLayout(5, 5));
+    bp.add(benchButton, BorderLayout.WEST);
+    bp.add(result);
+
     add(p, BorderLayout.NORTH);
     add(box);
+    add(bp, BorderLayout.SOUTH);
     setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
     setPreferredSize(new Dimension(320, 240));
   }
 
-  private static Image makeTestImage(DataBuffer dataBuffer, ColorModel colorModel, int w, int h, int transIdx) {
+  // Per pixel version, kept for LookupBenchmark: see PaletteLookup.highlight(...)
+  public static Image makeTestImage(DataBuffer dataBuffer, ColorModel colorModel, int w, int h, int transIdx) {
     // DataBufferByte dataBufferByte = null;
     // if (dataBuffer instanceof DataBufferByte) {
     //   dataBufferByte = (DataBufferByte) dataBuffer;
@@ -136,6 +170,130 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// Replaces the pixels of the image through a table built once from the
+// color model: the indexed raster is read a row at a time as an array and
+// the ARGB pixels are written straight into the DataBufferInt of the result.
+// Large images are processed in stripes of rows in parallel.
+final class PaletteLookup {
+  private static final int STRIPE_HEIGHT = 64;
+  private static final int PARALLEL_THRESHOLD = 512 * 512;
+
+  private PaletteLookup() {
+    /* Singleton */
+  }
+
+  public static BufferedImage highlight(BufferedImage image, int transIndex, int transRgb) {
+    ColorModel cm = image.getColorModel();
+    Raster raster = image.getRaster();
+    if (!(cm instanceof IndexColorModel) || raster.getNumBands() != 1) {
+      return copyOf(image);
+    }
+    int[] table = makeTable((IndexColorModel) cm, transIndex, transRgb);
+    return apply(raster, table, image.getWidth() * image.getHeight() >= PARALLEL_THRESHOLD);
+  }
+
+  // one ARGB value for every possible sample value, not only for the map size
+  public static int[] makeTable(IndexColorModel icm, int transIndex, int transRgb) {
+    int[] table = new int[1 << icm.getPixelSize()];
+    icm.getRGBs(table);
+    if (transIndex >= 0 && transIndex < table.length) {
+      table[transIndex] = transRgb;
+    }
+    return table;
+  }
+
+  public static BufferedImage apply(Raster raster, int[] table, boolean parallel) {
+    int w = raster.getWidth();
+    int h = raster.getHeight();
+    BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    int[] pixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+    IntStream stripes = IntStream.range(0, (h + STRIPE_HEIGHT - 1) / STRIPE_HEIGHT);
+    (parallel ? stripes.parallel() : stripes).forEach(i -> {
+      int y0 = i * STRIPE_HEIGHT;
+      int y1 = Math.min(h, y0 + STRIPE_HEIGHT);
+      if (!applyBytes(raster, table, pixels, y0, y1)) {
+        int[] samples = new int[w];
+        for (int y = y0; y < y1; y++) {
+          // 1, 2 and 4 bit rasters are unpacked by the SampleModel
+          raster.getSamples(raster.getMinX(), raster.getMinY() + y, w, 1, 0, samples);
+          int offset = y * w;
+          for (int x = 0; x < w; x++) {
+            pixels[offset + x] = table[samples[x]];
+          }
+        }
+      }
+    });
+    return dst;
+  }
+
+  // 8 bit indexed images: read the bytes of the DataBufferByte directly
+  private static boolean applyBytes(Raster raster, int[] table, int[] pixels, int y0, int y1) {
+    if (!(raster.getDataBuffer() instanceof DataBufferByte) || !(raster.getSampleModel() instanceof ComponentSampleModel)) {
+      return false;
+    }
+    ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+    if (sm.getPixelStride() != 1 || table.length < 256) {
+      return false;
+    }
+    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+    int w = raster.getWidth();
+    int scanline = sm.getScanlineStride();
+    int base = raster.getDataBuffer().getOffset() + sm.getOffset(
+        raster.getMinX() - raster.getSampleModelTranslateX(), raster.getMinY() - raster.getSampleModelTranslateY());
+    for (int y = y0; y < y1; y++) {
+      int src = base + y * scanline;
+      int offset = y * w;
+      for (int x = 0; x < w; x++) {
+        pixels[offset + x] = table[data[src + x] & 0xFF];
+      }
+    }
+    return true;
+  }
+
+  private static BufferedImage copyOf(BufferedImage image) {
+    int w = image.getWidth();
+    int h = image.getHeight();
+    BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    int[] pixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+    image.getRGB(0, 0, w, h, pixels, 0, w);
+    return dst;
+  }
+}
+
+// Highlights the transparent index of a 4096x4096 indexed image with the per
+// pixel setRGB(...) version and with the lookup table, serially and in
+// parallel. Runs on a worker thread, and every time is the median of REPEAT
+// runs after one warm-up run.
+class LookupBenchmark extends SwingWorker<String, Void> {
+  private static final int SIZE = 4096;
+  private static final int REPEAT = 5;
+
+  @Override protected String doInBackground() {
+    BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_INDEXED);
+    byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    new Random(1L).nextBytes(data);
+    IndexColorModel icm = (IndexColorModel) image.getColorModel();
+    int transIndex = 0;
+    int red = Color.RED.getRGB();
+    long perPixel = measure(() -> MainPanel.makeTestImage(image.getRaster().getDataBuffer(), icm, SIZE, SIZE, transIndex));
+    long serial = measure(() -> PaletteLookup.apply(image.getRaster(), PaletteLookup.makeTable(icm, transIndex, red), false));
+    long parallel = measure(() -> PaletteLookup.apply(image.getRaster(), PaletteLookup.makeTable(icm, transIndex, red), true));
+    return String.format("setRGB: %dms, table: %dms, parallel: %dms", perPixel, serial, parallel);
+  }
+
+  private static long measure(Runnable task) {
+    task.run(); // warm up
+    long[] times = new long[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      long start = System.nanoTime();
+      task.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2] / 1_000_000;
+  }
+}
+
 class IndexedColor {
   public final int index;
   public final Color color;
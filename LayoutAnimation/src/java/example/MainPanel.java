@@ -7,34 +7,43 @@ package example;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
-  public Timer animator;
+  // public Timer animator;
   public boolean isHidden = true;
+  // the clock steps are consumed by the next layout, preferredLayoutSize()
+  // may be called more than once per validation
+  private int pendingSteps;
   private final JPanel controls = new JPanel(new BorderLayout(5, 5) {
     private int controlsHeight;
     @Override public Dimension preferredLayoutSize(Container target) {
       // synchronized (target.getTreeLock()) {
       Dimension ps = super.preferredLayoutSize(target);
       int controlsPreferredHeight = ps.height;
-      if (Objects.nonNull(animator)) {
+      // if (Objects.nonNull(animator)) {
+      if (AnimationClock.getInstance().isRunning(controls)) {
         if (isHidden) {
           if (controls.getHeight() < controlsPreferredHeight) {
-            controlsHeight += 5;
+            controlsHeight += 5 * pendingSteps;
           }
         } else {
           if (controls.getHeight() > 0) {
-            controlsHeight -= 5;
+            controlsHeight -= 5 * pendingSteps;
           }
         }
+        pendingSteps = 0;
         if (controlsHeight <= 0) {
           controlsHeight = 0;
-          animator.stop();
+          // animator.stop();
+          AnimationClock.getInstance().stop(controls);
         } else if (controlsHeight >= controlsPreferredHeight) {
           controlsHeight = controlsPreferredHeight;
-          animator.stop();
+          // animator.stop();
+          AnimationClock.getInstance().stop(controls);
         }
       }
       ps.height = controlsHeight;
@@ -55,12 +64,22 @@ public final class MainPanel extends JPanel {
 
     Action act = new AbstractAction("Show/Hide Search Box") {
       @Override public void actionPerformed(ActionEvent ev) {
-        if (Objects.nonNull(animator) && animator.isRunning()) {
+        // if (Objects.nonNull(animator) && animator.isRunning()) {
+        //   return;
+        // }
+        AnimationClock clock = AnimationClock.getInstance();
+        if (clock.isRunning(controls)) {
           return;
         }
         isHidden = controls.getHeight() == 0;
-        animator = new Timer(5, e -> controls.revalidate());
-        animator.start();
+        // animator = new Timer(5, e -> controls.revalidate());
+        // animator.start();
+        pendingSteps = 0;
+        clock.start(controls, 5, steps -> {
+          pendingSteps += steps;
+          controls.revalidate();
+          return true;
+        });
       }
     };
     JButton showHideButton = new JButton();
@@ -103,3 +122,104 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
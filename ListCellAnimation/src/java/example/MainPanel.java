@@ -14,7 +14,9 @@ import java.awt.geom.Ellipse2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.swing.*;
 
@@ -23,7 +25,19 @@ public final class MainPanel extends JPanel {
     super(new BorderLayout());
     JScrollPane scroll = new JScrollPane(makeList());
     scroll.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    JLabel stats = new JLabel(" ");
+    Timer statsTimer = new Timer(1000, e -> stats.setText(AnimationClock.getInstance().getFrameStats()));
+    addHierarchyListener(e -> {
+      if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+        if (e.getComponent().isDisplayable()) {
+          statsTimer.start();
+        } else {
+          statsTimer.stop();
+        }
+      }
+    });
     add(scroll);
+    add(stats, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -69,8 +83,10 @@ public final class MainPanel extends JPanel {
 class AnimeListCellRenderer<E> extends JPanel implements ListCellRenderer<E>, HierarchyListener {
   private static final Color SELECTEDCOLOR = new Color(0xE6_E6_FF);
   protected final AnimeIcon icon = new AnimeIcon();
+  private static final int PERIOD = 80;
   private final MarqueeLabel label = new MarqueeLabel();
-  private final Timer animator;
+  // private final Timer animator;
+  private final transient AnimationClock.Animation animation;
   protected final JList<E> list;
   private boolean running;
   private int animateIndex = -1;
@@ -78,15 +94,25 @@ class AnimeListCellRenderer<E> extends JPanel implements ListCellRenderer<E>, Hi
   protected AnimeListCellRenderer(JList<E> l) {
     super(new BorderLayout());
     this.list = l;
-    animator = new Timer(80, e -> {
+    // animator = new Timer(80, e -> {
+    //   int i = list.getSelectedIndex();
+    //   if (i >= 0) {
+    //     running = true;
+    //     list.repaint(list.getCellBounds(i, i));
+    //   } else {
+    //     running = false;
+    //   }
+    // });
+    animation = steps -> {
       int i = list.getSelectedIndex();
       if (i >= 0) {
         running = true;
-        list.repaint(list.getCellBounds(i, i));
+        AnimationClock.getInstance().repaint(list, list.getCellBounds(i, i));
       } else {
         running = false;
       }
-    });
+      return true;
+    };
     setOpaque(true);
     add(icon, BorderLayout.WEST);
     add(label);
@@ -97,9 +123,11 @@ class AnimeListCellRenderer<E> extends JPanel implements ListCellRenderer<E>, Hi
   @Override public void hierarchyChanged(HierarchyEvent e) {
     if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
       if (e.getComponent().isDisplayable()) {
-        animator.start();
+        // animator.start();
+        AnimationClock.getInstance().start(list, PERIOD, animation);
       } else {
-        animator.stop();
+        // animator.stop();
+        AnimationClock.getInstance().stop(list);
       }
     }
   }
@@ -195,3 +223,104 @@ class AnimeListCellRenderer<E> extends JPanel implements ListCellRenderer<E>, Hi
     return new Color(.5f, .5f, .5f, alpha);
   }
 }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
@@ -5,18 +5,35 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
-import java.awt.image.ImageProducer;
+import java.awt.image.ImageObserver;
 import java.awt.image.MemoryImageSource;
+import java.util.Objects;
+import java.util.Optional;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
-    add(new PaintPanel());
+    // add(new PaintPanel());
+    RasterCanvas canvas = new RasterCanvas(8000, 8000);
+    JLabel metrics = new JLabel(" ");
+    Timer timer = new Timer(1000, e -> metrics.setText(canvas.takeMetrics()));
+    addHierarchyListener(e -> {
+      if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+        if (e.getComponent().isDisplayable()) {
+          timer.start();
+        } else {
+          timer.stop();
+        }
+      }
+    });
+    add(new JScrollPane(new PaintPanel(canvas)));
+    add(metrics, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -43,29 +60,39 @@ public final class MainPanel extends JPanel {
 
 class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
   private Point startPoint = new Point();
-  private final transient BufferedImage backImage;
+  // private final transient BufferedImage backImage;
   private static final Paint TEXTURE = TextureUtils.createCheckerTexture(6, new Color(0x32_C8_96_64, true));
-  private final Rectangle rect = new Rectangle(320, 240);
-  private final int[] pixels = new int[rect.width * rect.height];
-  private final transient ImageProducer src = new MemoryImageSource(rect.width, rect.height, pixels, 0, rect.width);
+  private final Rectangle rect;
+  // private final int[] pixels = new int[rect.width * rect.height];
+  // private final transient ImageProducer src = new MemoryImageSource(rect.width, rect.height, pixels, 0, rect.width);
+  private final transient RasterCanvas canvas;
   private int penColor;
 
-  protected PaintPanel() {
+  protected PaintPanel(RasterCanvas canvas) {
     super();
+    this.canvas = canvas;
+    this.rect = new Rectangle(canvas.getWidth(), canvas.getHeight());
     addMouseMotionListener(this);
     addMouseListener(this);
-    backImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-    Graphics2D g2 = backImage.createGraphics();
-    g2.setPaint(TEXTURE);
-    g2.fill(rect);
-    g2.dispose();
+    // backImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
+    // Graphics2D g2 = backImage.createGraphics();
+    // g2.setPaint(TEXTURE);
+    // g2.fill(rect);
+    // g2.dispose();
+  }
+
+  @Override public Dimension getPreferredSize() {
+    return rect.getSize();
   }
 
   @Override protected void paintComponent(Graphics g) {
     super.paintComponent(g);
     Graphics2D g2 = (Graphics2D) g.create();
-    g2.drawImage(backImage, 0, 0, this);
-    g2.drawImage(createImage(src), 0, 0, this);
+    // g2.drawImage(backImage, 0, 0, this);
+    // g2.drawImage(createImage(src), 0, 0, this);
+    g2.setPaint(TEXTURE);
+    g2.fill(Optional.ofNullable(g2.getClipBounds()).orElse(rect));
+    canvas.paint(g2, this);
     g2.dispose();
   }
 
@@ -91,6 +118,8 @@ class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
       ystart += yincrement;
     }
     startPoint = e.getPoint();
+    // one repaint for the union of all the stamps of this drag event
+    canvas.flush().ifPresent(this::repaint);
   }
 
   private void paintStamp(Point p, int penc) {
@@ -99,13 +128,14 @@ class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
     // 3 x 3 square:
     for (int n = -1; n <= 1; n++) {
       for (int m = -1; m <= 1; m++) {
-        int t = p.x + n + (p.y + m) * rect.width;
-        if (t >= 0 && t < rect.width * rect.height) {
-          pixels[t] = penc;
-        }
+        // int t = p.x + n + (p.y + m) * rect.width;
+        // if (t >= 0 && t < rect.width * rect.height) {
+        //   pixels[t] = penc;
+        // }
+        canvas.setPixel(p.x + n, p.y + m, penc);
       }
     }
-    repaint(p.x - 2, p.y - 2, 4, 4);
+    // repaint(p.x - 2, p.y - 2, 4, 4);
   }
 
   @Override public void mousePressed(MouseEvent e) {
@@ -134,6 +164,155 @@ class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
   }
 }
 
+// An ARGB raster split into TILE_SIZE square tiles that are allocated on the
+// first write, so an 8000x8000 canvas costs memory only where it is painted.
+// Each tile is an int[] behind an animated MemoryImageSource, and its Image is
+// created once. The pixels are written straight into the arrays and the
+// touched area is accumulated into one dirty rectangle. A flush sends only
+// the dirty part of each tile to its image with newPixels(x, y, w, h) and
+// returns the area to repaint, so no image has to be rebuilt on paint.
+class RasterCanvas {
+  public static final int TILE_SIZE = 256;
+  private final int width;
+  private final int height;
+  private final int columns;
+  private final Image[] tiles;
+  private final MemoryImageSource[] sources;
+  private final int[][] tileData;
+  private int dirtyMinX = Integer.MAX_VALUE;
+  private int dirtyMinY = Integer.MAX_VALUE;
+  private int dirtyMaxX = -1;
+  private int dirtyMaxY = -1;
+  // frame metrics since the last takeMetrics()
+  private int frames;
+  private long frameNanos;
+  private long maxFrameNanos;
+  private long flushedPixels;
+
+  protected RasterCanvas(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    this.tiles = new Image[columns * rows];
+    this.sources = new MemoryImageSource[columns * rows];
+    this.tileData = new int[columns * rows][];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public void setPixel(int x, int y, int argb) {
+    if (x < 0 || y < 0 || x >= width || y >= height) {
+      return;
+    }
+    int col = x / TILE_SIZE;
+    int row = y / TILE_SIZE;
+    int idx = row * columns + col;
+    int[] data = tileData[idx];
+    if (Objects.isNull(data)) {
+      if (argb == 0) {
+        return; // erasing an empty tile
+      }
+      data = allocateTile(idx, col, row);
+    }
+    data[(y - row * TILE_SIZE) * getTileWidth(col) + x - col * TILE_SIZE] = argb;
+    dirtyMinX = Math.min(dirtyMinX, x);
+    dirtyMinY = Math.min(dirtyMinY, y);
+    dirtyMaxX = Math.max(dirtyMaxX, x);
+    dirtyMaxY = Math.max(dirtyMaxY, y);
+  }
+
+  private int getTileWidth(int col) {
+    return Math.min(TILE_SIZE, width - col * TILE_SIZE);
+  }
+
+  private int getTileHeight(int row) {
+    return Math.min(TILE_SIZE, height - row * TILE_SIZE);
+  }
+
+  private int[] allocateTile(int idx, int col, int row) {
+    int w = getTileWidth(col);
+    int h = getTileHeight(row);
+    int[] data = new int[w * h];
+    MemoryImageSource source = new MemoryImageSource(w, h, data, 0, w);
+    source.setAnimated(true);
+    sources[idx] = source;
+    tiles[idx] = Toolkit.getDefaultToolkit().createImage(source);
+    tileData[idx] = data;
+    return data;
+  }
+
+  // Sends the area written since the last flush to the tile images,
+  // then returns and clears it.
+  public Optional<Rectangle> flush() {
+    if (dirtyMaxX < 0) {
+      return Optional.empty();
+    }
+    Rectangle r = new Rectangle(dirtyMinX, dirtyMinY, dirtyMaxX - dirtyMinX + 1, dirtyMaxY - dirtyMinY + 1);
+    for (int row = dirtyMinY / TILE_SIZE; row <= dirtyMaxY / TILE_SIZE; row++) {
+      for (int col = dirtyMinX / TILE_SIZE; col <= dirtyMaxX / TILE_SIZE; col++) {
+        MemoryImageSource source = sources[row * columns + col];
+        if (Objects.nonNull(source)) {
+          Rectangle tile = new Rectangle(col * TILE_SIZE, row * TILE_SIZE, getTileWidth(col), getTileHeight(row));
+          Rectangle d = tile.intersection(r);
+          source.newPixels(d.x - tile.x, d.y - tile.y, d.width, d.height);
+        }
+      }
+    }
+    flushedPixels += (long) r.width * r.height;
+    dirtyMinX = Integer.MAX_VALUE;
+    dirtyMinY = Integer.MAX_VALUE;
+    dirtyMaxX = -1;
+    dirtyMaxY = -1;
+    return Optional.of(r);
+  }
+
+  // Draws the allocated tiles that intersect the clip.
+  public void paint(Graphics2D g2, ImageObserver observer) {
+    long start = System.nanoTime();
+    Rectangle clip = Optional.ofNullable(g2.getClipBounds()).orElseGet(() -> new Rectangle(width, height));
+    int col0 = Math.max(0, clip.x / TILE_SIZE);
+    int row0 = Math.max(0, clip.y / TILE_SIZE);
+    int col1 = Math.min(columns - 1, (clip.x + clip.width - 1) / TILE_SIZE);
+    int row1 = Math.min(tiles.length / columns - 1, (clip.y + clip.height - 1) / TILE_SIZE);
+    for (int row = row0; row <= row1; row++) {
+      for (int col = col0; col <= col1; col++) {
+        Image tile = tiles[row * columns + col];
+        if (Objects.nonNull(tile)) {
+          g2.drawImage(tile, col * TILE_SIZE, row * TILE_SIZE, observer);
+        }
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    frames++;
+    frameNanos += nanos;
+    maxFrameNanos = Math.max(maxFrameNanos, nanos);
+  }
+
+  // Returns a summary of the frames painted since the last call and resets it.
+  public String takeMetrics() {
+    int tileCount = 0;
+    for (Image tile: tiles) {
+      if (Objects.nonNull(tile)) {
+        tileCount++;
+      }
+    }
+    String s = String.format("%d frames, avg %.2f ms, max %.2f ms, %d px flushed, %d tiles",
+        frames, frames == 0 ? 0d : frameNanos / frames / 1e6, maxFrameNanos / 1e6, flushedPixels, tileCount);
+    frames = 0;
+    frameNanos = 0L;
+    maxFrameNanos = 0L;
+    flushedPixels = 0L;
+    return s;
+  }
+}
+
 final class TextureUtils {
   private static final Color DEFAULT_COLOR = new Color(0x64_64_64_64, true);
 
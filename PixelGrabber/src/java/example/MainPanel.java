@@ -8,13 +8,19 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.image.ImageObserver;
 import java.awt.image.MemoryImageSource;
 import java.awt.image.PixelGrabber;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
+  private static final int[] CORNER_SPANS = makeCornerSpans(makeNorthWestConer());
+
   private MainPanel() {
     super(new BorderLayout());
 
@@ -23,13 +29,14 @@ public final class MainPanel extends JPanel {
     int height = icon.getIconHeight();
     Image image = icon.getImage();
 
-    BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    makeRoundedMemoryImageSource(image, width, height).ifPresent(producer -> {
-      Image img = createImage(producer);
-      Graphics g = bi.createGraphics();
-      g.drawImage(img, 0, 0, this);
-      g.dispose();
-    });
+    // BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    // makeRoundedMemoryImageSource(image, width, height).ifPresent(producer -> {
+    //   Image img = createImage(producer);
+    //   Graphics g = bi.createGraphics();
+    //   g.drawImage(img, 0, 0, this);
+    //   g.dispose();
+    // });
+    BufferedImage bi = makeRoundedImage(image, width, height);
 
     // BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     // Graphics2D g2 = bi.createGraphics();
@@ -62,8 +69,32 @@ public final class MainPanel extends JPanel {
     JCheckBox check = new JCheckBox("transparency at the rounded windows corners");
     check.addActionListener(e -> cardLayout.show(p, ((JCheckBox) e.getSource()).isSelected() ? "rounded" : "original"));
 
+    JLabel result = new JLabel(" ");
+    JButton benchButton = new JButton("16MP benchmark");
+    benchButton.addActionListener(e -> {
+      benchButton.setEnabled(false);
+      result.setText("running...");
+      new RoundedCornerBenchmark() {
+        @Override protected void done() {
+          try {
+            result.setText(get());
+          } catch (InterruptedException ex) {
+            result.setText("Interrupted");
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            result.setText(Objects.toString(ex.getCause()));
+          }
+          benchButton.setEnabled(true);
+        }
+      }.execute();
+    });
+    JPanel bp = new JPanel(new BorderLayout(5, 5));
+    bp.add(benchButton, BorderLayout.WEST);
+    bp.add(result);
+
     add(check, BorderLayout.NORTH);
     add(p);
+    add(bp, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -76,7 +107,40 @@ public final class MainPanel extends JPanel {
     return area;
   }
 
-  private static Optional<MemoryImageSource> makeRoundedMemoryImageSource(Image image, int width, int height) {
+  // The number of transparent pixels at the start of each row of the corner,
+  // the NE corner is the mirror image of the NW one.
+  private static int[] makeCornerSpans(Area area) {
+    Rectangle r = area.getBounds();
+    int[] spans = new int[r.y + r.height];
+    for (int y = 0; y < spans.length; y++) {
+      int x = 0;
+      while (x < r.x + r.width && area.contains(x, y)) {
+        x++;
+      }
+      spans[y] = x;
+    }
+    return spans;
+  }
+
+  // Draws the image once into an ARGB image and clears the corners directly
+  // in its DataBufferInt, one Arrays.fill per row of the corner table,
+  // instead of PixelGrabber -> int[] -> MemoryImageSource -> drawImage.
+  public static BufferedImage makeRoundedImage(Image image, int width, int height) {
+    BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = bi.createGraphics();
+    g2.drawImage(image, 0, 0, null);
+    g2.dispose();
+    int[] pix = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+    for (int y = 0; y < Math.min(CORNER_SPANS.length, height); y++) {
+      int n = Math.min(CORNER_SPANS[y], width);
+      int row = y * width;
+      Arrays.fill(pix, row, row + n, 0x0); // NW
+      Arrays.fill(pix, row + width - n, row + width, 0x0); // NE
+    }
+    return bi;
+  }
+
+  public static Optional<MemoryImageSource> makeRoundedMemoryImageSource(Image image, int width, int height) {
     int[] pix = new int[height * width];
     PixelGrabber pg = new PixelGrabber(image, 0, 0, width, height, pix, 0, width);
     try {
@@ -180,3 +244,44 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// Rounds the corners of a 4096x4096 image with the PixelGrabber and
+// MemoryImageSource round trip and by filling the raster directly. Runs on a
+// worker thread, and every time is the median of REPEAT runs after one
+// warm-up run.
+class RoundedCornerBenchmark extends SwingWorker<String, Void> {
+  private static final int SIZE = 4096;
+  private static final int REPEAT = 5;
+
+  @Override protected String doInBackground() {
+    BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2 = image.createGraphics();
+    g2.setPaint(new GradientPaint(0f, 0f, Color.WHITE, SIZE, SIZE, Color.ORANGE));
+    g2.fillRect(0, 0, SIZE, SIZE);
+    g2.dispose();
+
+    long grabber = measure(() -> {
+      BufferedImage bi = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+      MainPanel.makeRoundedMemoryImageSource(image, SIZE, SIZE).ifPresent(producer -> {
+        Image img = Toolkit.getDefaultToolkit().createImage(producer);
+        Graphics g = bi.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+      });
+    });
+    long raster = measure(() -> MainPanel.makeRoundedImage(image, SIZE, SIZE));
+    return String.format("PixelGrabber: %dms, raster: %dms", grabber, raster);
+  }
+
+  private static long measure(Runnable task) {
+    task.run(); // warm up
+    long[] times = new long[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      long start = System.nanoTime();
+      task.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2] / 1_000_000;
+  }
+}
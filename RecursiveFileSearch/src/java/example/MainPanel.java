@@ -9,21 +9,32 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
+import java.nio.file.PathMatcher;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   private final JComboBox<String> dirCombo = new JComboBox<>();
   private final JFileChooser fileChooser = new JFileChooser();
   private final JTextArea textArea = new JTextArea();
+  private final JTextField filterField = new JTextField("glob:*", 10);
   private final JProgressBar progress = new JProgressBar();
   private final JPanel statusPanel = new JPanel(new BorderLayout());
   private final JButton runButton = new JButton("Run");
@@ -85,7 +96,9 @@ public final class MainPanel extends JPanel {
 
     Box box2 = Box.createHorizontalBox();
     box2.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-    box2.add(Box.createHorizontalGlue());
+    box2.add(new JLabel("Filter: "));
+    box2.add(filterField);
+    box2.add(Box.createHorizontalStrut(5));
     box2.add(runButton);
     box2.add(Box.createHorizontalStrut(2));
     box2.add(cancelButton);
@@ -101,8 +114,8 @@ public final class MainPanel extends JPanel {
   }
 
   public final class FileSearchTask extends RecursiveFileSearchTask {
-    public FileSearchTask(File dir) {
-      super(dir);
+    public FileSearchTask(File dir, String syntaxAndPattern) {
+      super(dir, syntaxAndPattern);
     }
 
     @Override protected void process(List<Message> chunks) {
@@ -178,7 +191,17 @@ public final class MainPanel extends JPanel {
 
   public void executeWorker() {
     File dir = new File(dirCombo.getItemAt(dirCombo.getSelectedIndex()));
-    worker = new FileSearchTask(dir);
+    String pattern = filterField.getText().trim();
+    if (!pattern.startsWith("glob:") && !pattern.startsWith("regex:")) {
+      pattern = "glob:" + (pattern.isEmpty() ? "*" : pattern);
+    }
+    try {
+      worker = new FileSearchTask(dir, pattern);
+    } catch (IllegalArgumentException ex) {
+      updateComponentStatus(false);
+      appendLine(ex.getMessage());
+      return;
+    }
     worker.addPropertyChangeListener(new ProgressListener(progress));
     worker.execute();
   }
@@ -289,12 +312,32 @@ public final class MainPanel extends JPanel {
 // }
 
 class RecursiveFileSearchTask extends SwingWorker<String, Message> {
-  protected int counter;
+  private static final int BATCH_SIZE = 500;
+  private static final int QUEUE_CAPACITY = 4 * BATCH_SIZE;
+  private static final long REPORT_INTERVAL = 500L; // milliseconds
+  protected final LongAdder fileCounter = new LongAdder();
+  protected final LongAdder matchCounter = new LongAdder();
+  protected final LongAdder dirCounter = new LongAdder();
+  protected final LongAdder foundDirCounter = new LongAdder();
+  protected final LongAdder skipCounter = new LongAdder();
+  private final BlockingQueue<Path> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
   private final File dir;
+  private final PathMatcher matcher;
+  private volatile boolean stopped;
 
   protected RecursiveFileSearchTask(File dir) {
+    this(dir, "glob:*");
+  }
+
+  /**
+   * @param dir the directory to search
+   * @param syntaxAndPattern a file name filter, e.g. "glob:*.java" or "regex:.*\\.txt"
+   * @see java.nio.file.FileSystem#getPathMatcher(String)
+   */
+  protected RecursiveFileSearchTask(File dir, String syntaxAndPattern) {
     super();
     this.dir = dir;
+    this.matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
   }
 
   @Override protected String doInBackground() throws InterruptedException {
@@ -302,56 +345,136 @@ class RecursiveFileSearchTask extends SwingWorker<String, Message> {
       publish(new Message("The directory does not exist.", true));
       return "Error";
     }
+    firePropertyChange("clear-JTextArea", "", "");
 
-    List<Path> list = new ArrayList<>();
+    ForkJoinPool pool = new ForkJoinPool();
     try {
-      counter = 0;
-      recursiveSearch(dir.toPath(), list);
-    } catch (IOException ex) {
-      publish(new Message("The search was canceled", true));
-      return "Interrupted1";
+      foundDirCounter.increment();
+      ForkJoinTask<?> task = pool.submit(new DirectoryTask(dir.toPath()));
+      drainQueue(task);
+      if (task.isCompletedAbnormally()) {
+        Throwable ex = task.getException();
+        publish(new Message("The search failed: " + ex, true));
+        return "Error";
+      }
+    } finally {
+      stopped = true;
+      pool.shutdownNow();
     }
-    firePropertyChange("clear-JTextArea", "", "");
-
-    int lengthOfTask = list.size();
-    publish(new Message("Length Of Task: " + lengthOfTask, false));
-    publish(new Message("----------------", true));
+    long skipped = skipCounter.sum();
+    if (skipped > 0) {
+      publish(new Message(String.format("%d unreadable entries were skipped.", skipped), true));
+    }
+    return String.format("Done: %d/%d files", matchCounter.sum(), fileCounter.sum());
+  }
 
-    int idx = 0;
-    while (idx < lengthOfTask && !isCancelled()) {
-      doSomething(list, idx);
-      idx++;
+  // The walker threads block while the queue is full, so at most
+  // QUEUE_CAPACITY paths are held in memory at any time.
+  private void drainQueue(ForkJoinTask<?> task) throws InterruptedException {
+    long startTime = System.currentTimeMillis();
+    long reportTime = startTime;
+    List<Path> batch = new ArrayList<>(BATCH_SIZE);
+    while (!isCancelled() && (!task.isDone() || !queue.isEmpty())) {
+      Path path = queue.poll(REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+      if (Objects.nonNull(path)) {
+        batch.add(path);
+        queue.drainTo(batch, BATCH_SIZE - batch.size());
+        publish(batch.stream().map(p -> new Message(p.toString(), true)).toArray(Message[]::new));
+        batch.clear();
+      }
+      long now = System.currentTimeMillis();
+      if (now - reportTime >= REPORT_INTERVAL || task.isDone()) {
+        reportTime = now;
+        reportThroughput(now - startTime);
+      }
     }
-    return "Done";
   }
 
-  protected void doSomething(List<Path> list, int idx) throws InterruptedException {
-    int lengthOfTask = list.size();
-    setProgress(100 * idx / lengthOfTask);
-    Thread.sleep(10);
-    Path path = list.get(idx);
-    int current = idx + 1;
-    publish(new Message(current + "/" + lengthOfTask + ", " + path, true));
+  private void reportThroughput(long elapsed) {
+    long dirs = dirCounter.sum();
+    setProgress((int) (100 * dirs / Math.max(1L, foundDirCounter.sum())));
+    double seconds = Math.max(1L, elapsed) / 1000d;
+    Throughput t = new Throughput(fileCounter.sum() / seconds, dirs / seconds);
+    firePropertyChange("throughput", null, t);
+  }
+
+  private void enqueue(Path file) throws InterruptedException {
+    boolean offered = false;
+    while (!stopped && !offered) {
+      offered = queue.offer(file, REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
   }
 
   // Walking the File Tree (The Java™ Tutorials > Essential Classes > Basic I/O)
   // https://docs.oracle.com/javase/tutorial/essential/io/walk.html
-  private void recursiveSearch(Path dirPath, List<Path> list) throws IOException {
-    Files.walkFileTree(dirPath, new SimpleFileVisitor<Path>() {
-      @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        if (Thread.interrupted()) {
-          throw new IOException();
-        }
-        if (attrs.isRegularFile()) {
-          counter++;
-          if (counter % 100 == 0) {
-            publish(new Message("Results:" + counter + "\n", false));
+  // Each directory is listed by its own task, the subdirectories are forked
+  // and stolen by idle workers.
+  private class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient Path dirPath;
+
+    protected DirectoryTask(Path dirPath) {
+      super();
+      this.dirPath = dirPath;
+    }
+
+    @Override protected void compute() {
+      List<DirectoryTask> subtasks = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+        for (Path path: stream) {
+          if (stopped) {
+            break;
           }
-          list.add(file);
+          visit(path, subtasks);
         }
-        return FileVisitResult.CONTINUE;
+      } catch (IOException | DirectoryIteratorException ex) {
+        // the directory cannot be opened, or its listing broke off:
+        // count it, and still wait for the subdirectories already forked
+        skipCounter.increment();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } finally {
+        dirCounter.increment();
+        subtasks.forEach(ForkJoinTask::join);
       }
-    });
+    }
+
+    private void visit(Path path, List<DirectoryTask> subtasks) throws InterruptedException {
+      BasicFileAttributes attrs;
+      try {
+        attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      } catch (IOException ex) {
+        // deleted while scanning, or not readable: skip only this entry
+        skipCounter.increment();
+        return;
+      }
+      if (attrs.isDirectory()) {
+        foundDirCounter.increment();
+        DirectoryTask task = new DirectoryTask(path);
+        task.fork();
+        subtasks.add(task);
+      } else if (attrs.isRegularFile()) {
+        fileCounter.increment();
+        if (matcher.matches(path.getFileName())) {
+          matchCounter.increment();
+          enqueue(path);
+        }
+      }
+    }
+  }
+}
+
+class Throughput {
+  public final double filesPerSecond;
+  public final double directoriesPerSecond;
+
+  protected Throughput(double filesPerSecond, double directoriesPerSecond) {
+    this.filesPerSecond = filesPerSecond;
+    this.directoriesPerSecond = directoriesPerSecond;
+  }
+
+  @Override public String toString() {
+    return String.format("%.0f files/s, %.0f dirs/s", filesPerSecond, directoriesPerSecond);
   }
 }
 
@@ -369,6 +492,9 @@ class ProgressListener implements PropertyChangeListener {
       progressBar.setIndeterminate(false);
       int progress = (Integer) e.getNewValue();
       progressBar.setValue(progress);
+    } else if ("throughput".equals(strPropertyName)) {
+      progressBar.setStringPainted(true);
+      progressBar.setString(Objects.toString(e.getNewValue()));
     }
   }
 }
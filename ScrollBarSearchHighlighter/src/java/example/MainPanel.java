@@ -6,16 +6,28 @@ package example;
 
 import com.sun.java.swing.plaf.windows.WindowsScrollBarUI;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.plaf.metal.MetalScrollBarUI;
+import javax.swing.text.AbstractDocument;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultHighlighter.DefaultHighlightPainter;
 import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.Highlighter;
 import javax.swing.text.Highlighter.HighlightPainter;
 import javax.swing.text.JTextComponent;
@@ -44,6 +56,7 @@ public final class MainPanel extends JPanel {
     JTextArea textArea = new JTextArea();
     textArea.setEditable(false);
     textArea.setText(TEXT + TEXT + TEXT);
+    HighlightMarks marks = new HighlightMarks(textArea);
 
     JScrollBar scrollbar = new JScrollBar(Adjustable.VERTICAL);
     // JScrollBar scrollbar = new JScrollBar(Adjustable.VERTICAL) {
@@ -54,16 +67,17 @@ public final class MainPanel extends JPanel {
     //   }
     // };
     if (scrollbar.getUI() instanceof WindowsScrollBarUI) {
-      scrollbar.setUI(new WindowsHighlightScrollBarUI(textArea));
+      scrollbar.setUI(new WindowsHighlightScrollBarUI(marks));
     } else {
-      scrollbar.setUI(new MetalHighlightScrollBarUI(textArea));
+      scrollbar.setUI(new MetalHighlightScrollBarUI(marks));
     }
     scrollbar.setUnitIncrement(10);
 
     JScrollPane scroll = new JScrollPane(textArea);
     scroll.setVerticalScrollBar(scrollbar);
+    marks.addRepaintTarget(scroll);
 
-    JLabel label = new JLabel(new HighlightIcon(textArea, scrollbar));
+    JLabel label = new JLabel(new HighlightIcon(textArea, scrollbar, marks));
     // label.setBorder(BorderFactory.createLineBorder(Color.RED));
     scroll.setRowHeaderView(label);
 
@@ -86,12 +100,14 @@ public final class MainPanel extends JPanel {
     JButton highlight = new JButton("highlight");
     highlight.addActionListener(e -> {
       setHighlight(textArea, PATTERN);
+      marks.update();
       repaint();
     });
 
     JButton clear = new JButton("clear");
     clear.addActionListener(e -> {
       textArea.getHighlighter().removeAllHighlights();
+      marks.update();
       scroll.repaint();
     });
 
@@ -146,15 +162,164 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// The y-positions of the highlights in view coordinates, sorted and without
+// duplicates. They are rebuilt only when the highlights, the document or the
+// layout change, and scaled to a track height once per height.
+class HighlightMarks {
+  // The matches are merged into one mark per scaled row, so every mark has
+  // the same height regardless of the height of the matched text.
+  public static final int MARK_HEIGHT = 2;
+  private final JTextComponent textComponent;
+  private final List<Component> repaintTargets = new ArrayList<>();
+  private final Map<Integer, int[]> scaledRows = new HashMap<>();
+  private int[] positions = new int[0];
+  private int viewHeight;
+  private int generation;
+
+  protected HighlightMarks(JTextComponent textComponent) {
+    this.textComponent = textComponent;
+    textComponent.getDocument().addDocumentListener(new DocumentListener() {
+      @Override public void insertUpdate(DocumentEvent e) {
+        update();
+      }
+
+      @Override public void removeUpdate(DocumentEvent e) {
+        update();
+      }
+
+      @Override public void changedUpdate(DocumentEvent e) {
+        /* not needed */
+      }
+    });
+    textComponent.addPropertyChangeListener(e -> {
+      String name = e.getPropertyName();
+      if ("font".equals(name) || "lineWrap".equals(name) || "wrapStyleWord".equals(name)) {
+        update();
+      }
+    });
+    textComponent.addComponentListener(new ComponentAdapter() {
+      private int width = -1;
+      @Override public void componentResized(ComponentEvent e) {
+        int w = e.getComponent().getWidth();
+        if (w != width && isLineWrap()) {
+          update();
+        }
+        width = w;
+      }
+    });
+  }
+
+  public void addRepaintTarget(Component c) {
+    repaintTargets.add(c);
+  }
+
+  private boolean isLineWrap() {
+    return textComponent instanceof JTextArea && ((JTextArea) textComponent).getLineWrap();
+  }
+
+  // A JTextArea without line wrap places each line at a fixed height, so the
+  // positions can be computed from the line index on a worker thread.
+  // Otherwise the views have to be asked on the EDT, but still only once per change.
+  public void update() {
+    int gen = ++generation;
+    int[] offsets = Arrays.stream(textComponent.getHighlighter().getHighlights())
+        .mapToInt(Highlighter.Highlight::getStartOffset).toArray();
+    if (textComponent instanceof JTextArea && !isLineWrap()) {
+      Document doc = textComponent.getDocument();
+      int top = textComponent.getInsets().top;
+      int rowHeight = textComponent.getFontMetrics(textComponent.getFont()).getHeight();
+      new SwingWorker<int[], Void>() {
+        @Override protected int[] doInBackground() {
+          int[] ys = new int[offsets.length];
+          ((AbstractDocument) doc).render(() -> {
+            Element root = doc.getDefaultRootElement();
+            for (int i = 0; i < offsets.length; i++) {
+              ys[i] = top + root.getElementIndex(offsets[i]) * rowHeight;
+            }
+          });
+          return distinctSorted(ys);
+        }
+
+        @Override protected void done() {
+          try {
+            setPositions(gen, get());
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            UIManager.getLookAndFeel().provideErrorFeedback(textComponent);
+          }
+        }
+      }.execute();
+    } else {
+      int[] ys = new int[offsets.length];
+      try {
+        for (int i = 0; i < offsets.length; i++) {
+          ys[i] = textComponent.modelToView(offsets[i]).y;
+        }
+      } catch (BadLocationException ex) {
+        // should never happen
+        RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
+        wrap.initCause(ex);
+        throw wrap;
+      }
+      setPositions(gen, distinctSorted(ys));
+    }
+  }
+
+  private void setPositions(int gen, int[] ys) {
+    if (gen == generation) {
+      positions = ys;
+      scaledRows.clear();
+      repaintTargets.forEach(Component::repaint);
+    }
+  }
+
+  private static int[] distinctSorted(int[] ys) {
+    Arrays.sort(ys);
+    int n = 0;
+    for (int i = 0; i < ys.length; i++) {
+      if (n == 0 || ys[n - 1] != ys[i]) {
+        ys[n++] = ys[i];
+      }
+    }
+    return Arrays.copyOf(ys, n);
+  }
+
+  // Returns the marks scaled to the given height, at most one per pixel row.
+  public int[] getRows(int trackHeight) {
+    int h = textComponent.getHeight();
+    if (h != viewHeight) {
+      viewHeight = h;
+      scaledRows.clear();
+    }
+    if (h <= 0) {
+      return new int[0];
+    }
+    return scaledRows.computeIfAbsent(trackHeight, th -> {
+      int[] rows = new int[Math.min(positions.length, Math.max(0, th))];
+      int n = 0;
+      for (int y: positions) {
+        int row = (int) ((long) y * th / h);
+        if (n < rows.length && (n == 0 || rows[n - 1] != row)) {
+          rows[n++] = row;
+        }
+      }
+      return Arrays.copyOf(rows, n);
+    });
+  }
+}
+
 class HighlightIcon implements Icon {
   private static final Color THUMB_COLOR = new Color(0, 0, 255, 50);
   private final Rectangle thumbRect = new Rectangle();
   private final JTextComponent textArea;
   private final JScrollBar scrollbar;
+  private final HighlightMarks marks;
 
-  protected HighlightIcon(JTextComponent textArea, JScrollBar scrollbar) {
+  protected HighlightIcon(JTextComponent textArea, JScrollBar scrollbar, HighlightMarks marks) {
     this.textArea = textArea;
     this.scrollbar = scrollbar;
+    this.marks = marks;
   }
 
   @Override public void paintIcon(Component c, Graphics g, int x, int y) {
@@ -166,24 +331,13 @@ class HighlightIcon implements Icon {
     BoundedRangeModel range = scrollbar.getModel();
     double sy = range.getExtent() / (double) (range.getMaximum() - range.getMinimum());
     AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
 
     // paint Highlight
     Graphics2D g2 = (Graphics2D) g.create();
     g2.translate(x, y);
     g2.setPaint(Color.RED);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g2.fillRect(0, top + s.y, getIconWidth(), h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    for (int row: marks.getRows(range.getExtent())) {
+      g2.fillRect(0, top + row, getIconWidth(), HighlightMarks.MARK_HEIGHT);
     }
 
     // paint Thumb
@@ -212,65 +366,35 @@ class HighlightIcon implements Icon {
 }
 
 class WindowsHighlightScrollBarUI extends WindowsScrollBarUI {
-  private final JTextComponent textArea;
+  private final HighlightMarks marks;
 
-  protected WindowsHighlightScrollBarUI(JTextComponent textArea) {
+  protected WindowsHighlightScrollBarUI(HighlightMarks marks) {
     super();
-    this.textArea = textArea;
+    this.marks = marks;
   }
 
   @Override protected void paintTrack(Graphics g, JComponent c, Rectangle trackBounds) {
     super.paintTrack(g, c, trackBounds);
-
-    Rectangle rect = textArea.getBounds();
-    double sy = trackBounds.getHeight() / rect.getHeight();
-    AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
     g.setColor(Color.YELLOW);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g.fillRect(trackBounds.x, trackBounds.y + s.y, trackBounds.width, h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    for (int row: marks.getRows(trackBounds.height)) {
+      g.fillRect(trackBounds.x, trackBounds.y + row, trackBounds.width, HighlightMarks.MARK_HEIGHT);
     }
   }
 }
 
 class MetalHighlightScrollBarUI extends MetalScrollBarUI {
-  private final JTextComponent textArea;
+  private final HighlightMarks marks;
 
-  protected MetalHighlightScrollBarUI(JTextComponent textArea) {
+  protected MetalHighlightScrollBarUI(HighlightMarks marks) {
     super();
-    this.textArea = textArea;
+    this.marks = marks;
   }
 
   @Override protected void paintTrack(Graphics g, JComponent c, Rectangle trackBounds) {
     super.paintTrack(g, c, trackBounds);
-
-    Rectangle rect = textArea.getBounds();
-    double sy = trackBounds.getHeight() / rect.getHeight();
-    AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
     g.setColor(Color.YELLOW);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g.fillRect(trackBounds.x, trackBounds.y + s.y, trackBounds.width, h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    for (int row: marks.getRows(trackBounds.height)) {
+      g.fillRect(trackBounds.x, trackBounds.y + row, trackBounds.width, HighlightMarks.MARK_HEIGHT);
     }
   }
 }
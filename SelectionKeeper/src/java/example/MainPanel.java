@@ -38,6 +38,10 @@ public final class MainPanel extends JPanel {
       }
     };
 
+    JCheckBox check = new JCheckBox("parallel sorting");
+    check.addActionListener(e -> sorter.setParallelSorting(((JCheckBox) e.getSource()).isSelected()));
+
+    add(check, BorderLayout.NORTH);
     add(new JScrollPane(table));
     setPreferredSize(new Dimension(320, 240));
   }
@@ -5,12 +5,19 @@
 package example;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.*;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
-import javax.swing.text.Element;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
 import javax.swing.text.Style;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
@@ -20,7 +27,15 @@ public final class MainPanel extends JPanel {
     super(new BorderLayout());
     JTextPane textPane = new JTextPane(new SimpleSyntaxDocument());
     textPane.setText("red green, blue. red-green;blue.");
-    add(new JScrollPane(textPane));
+    JScrollPane scroll = new JScrollPane(textPane);
+    scroll.getViewport().addChangeListener(e -> {
+      JViewport viewport = (JViewport) e.getSource();
+      Rectangle r = viewport.getViewRect();
+      int start = textPane.viewToModel(r.getLocation());
+      int end = textPane.viewToModel(new Point(r.x + r.width, r.y + r.height));
+      ((SimpleSyntaxDocument) textPane.getDocument()).setVisibleRange(start, end);
+    });
+    add(scroll);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -54,19 +69,44 @@ class SimpleSyntaxDocument extends DefaultStyledDocument {
   private static final char LB = '\n';
   // HashMap<String, AttributeSet> keywords = new HashMap<>();
   private static final String OPERANDS = ".,";
+  // Changes larger than this are highlighted on a background thread, one chunk per EDT batch.
+  private static final int CHUNK_SIZE = 16 * 1024;
+  private static final int SCAN_WINDOW = 256;
+  private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "SimpleSyntaxDocument");
+    t.setDaemon(true);
+    return t;
+  });
   private final Style def = getStyle(StyleContext.DEFAULT_STYLE);
+  private final List<Style> keywords = new ArrayList<>();
+  private final Segment segment = new Segment();
+  private final TokenRuns runs = new TokenRuns();
+  private volatile int modificationCount;
+  private int visibleStart;
+  private int visibleEnd = Integer.MAX_VALUE;
 
   protected SimpleSyntaxDocument() {
     super();
     // Style def = StyleContext.getDefaultStyleContext().getStyle(StyleContext.DEFAULT_STYLE);
-    StyleConstants.setForeground(addStyle("red", def), Color.RED);
-    StyleConstants.setForeground(addStyle("green", def), Color.GREEN);
-    StyleConstants.setForeground(addStyle("blue", def), Color.BLUE);
+    StyleConstants.setForeground(addKeyword("red"), Color.RED);
+    StyleConstants.setForeground(addKeyword("green"), Color.GREEN);
+    StyleConstants.setForeground(addKeyword("blue"), Color.BLUE);
+  }
+
+  private Style addKeyword(String keyword) {
+    Style s = addStyle(keyword, def);
+    keywords.add(s);
+    return s;
+  }
+
+  // The chunks of a large change that intersect this range are highlighted first.
+  public void setVisibleRange(int start, int end) {
+    visibleStart = start;
+    visibleEnd = end;
   }
 
   @Override public void insertString(int offset, String text, AttributeSet a) throws BadLocationException {
     // @see PlainDocument#insertString(...)
-    int length = 0;
     String str = text;
     if (Objects.nonNull(str) && str.indexOf(LB) >= 0) {
       StringBuilder filtered = new StringBuilder(str);
@@ -77,10 +117,9 @@ class SimpleSyntaxDocument extends DefaultStyledDocument {
         }
       }
       str = filtered.toString();
-      length = str.length();
     }
     super.insertString(offset, str, a);
-    processChangedLines(offset, length);
+    processChangedLines(offset, Objects.nonNull(str) ? str.length() : 0);
   }
 
   @Override public void remove(int offset, int length) throws BadLocationException {
@@ -88,60 +127,189 @@ class SimpleSyntaxDocument extends DefaultStyledDocument {
     processChangedLines(offset, 0);
   }
 
+  // Tokens never contain a delimiter, so only the text between the nearest
+  // delimiters around the change has to be scanned again.
   private void processChangedLines(int offset, int length) throws BadLocationException {
-    Element root = getDefaultRootElement();
-    String content = getText(0, getLength());
-    int startLine = root.getElementIndex(offset);
-    int endLine = root.getElementIndex(offset + length);
-    for (int i = startLine; i <= endLine; i++) {
-      applyHighlighting(content, i);
+    modificationCount++;
+    int start = findTokenStart(offset);
+    int end = findTokenEnd(offset + length);
+    if (end - start > CHUNK_SIZE) {
+      highlightInBackground(start, end);
+    } else {
+      applyHighlighting(start, end);
     }
   }
 
-  private void applyHighlighting(String content, int line) {
-    Element root = getDefaultRootElement();
-    int startOffset = root.getElement(line).getStartOffset();
-    int endOffset = root.getElement(line).getEndOffset() - 1;
-    int lineLength = endOffset - startOffset;
-    int contentLength = content.length();
-    endOffset = endOffset >= contentLength ? contentLength - 1 : endOffset;
-    setCharacterAttributes(startOffset, lineLength, def, true);
-    checkForTokens(content, startOffset, endOffset);
-  }
-
-  private void checkForTokens(String content, int startOffset, int endOffset) {
-    int index = startOffset;
-    while (index <= endOffset) {
-      while (isDelimiter(content.substring(index, index + 1))) {
-        if (index < endOffset) {
-          index++;
-        } else {
-          return;
+  private int findTokenStart(int offset) throws BadLocationException {
+    int start = offset;
+    while (start > 0) {
+      int from = Math.max(0, start - SCAN_WINDOW);
+      getText(from, start - from, segment);
+      for (int i = segment.count - 1; i >= 0; i--) {
+        if (isDelimiter(segment.array[segment.offset + i])) {
+          return from + i + 1;
         }
       }
-      index = getOtherToken(content, index, endOffset);
+      start = from;
     }
+    return 0;
   }
 
-  private int getOtherToken(String content, int startOffset, int endOffset) {
-    int endOfToken = startOffset + 1;
-    while (endOfToken <= endOffset) {
-      if (isDelimiter(content.substring(endOfToken, endOfToken + 1))) {
-        break;
+  private int findTokenEnd(int offset) throws BadLocationException {
+    int end = offset;
+    int length = getLength();
+    while (end < length) {
+      int count = Math.min(SCAN_WINDOW, length - end);
+      getText(end, count, segment);
+      for (int i = 0; i < count; i++) {
+        if (isDelimiter(segment.array[segment.offset + i])) {
+          return end + i;
+        }
       }
-      endOfToken++;
+      end += count;
+    }
+    return length;
+  }
+
+  private void applyHighlighting(int start, int end) throws BadLocationException {
+    runs.clear();
+    getText(start, end - start, segment);
+    checkForTokens(segment, start, runs);
+    applyRuns(start, end, runs);
+  }
+
+  private void applyRuns(int start, int end, TokenRuns tokens) {
+    setCharacterAttributes(start, end - start, def, true);
+    for (int i = 0; i < tokens.size(); i++) {
+      setCharacterAttributes(tokens.getOffset(i), tokens.getLength(i), keywords.get(tokens.getKeyword(i)), false);
     }
-    String token = content.substring(startOffset, endOfToken);
-    Style s = getStyle(token);
-    // if (keywords.containsKey(token)) {
-    //  setCharacterAttributes(startOffset, endOfToken - startOffset, keywords.get(token), false);
-    if (Objects.nonNull(s)) {
-      setCharacterAttributes(startOffset, endOfToken - startOffset, s, false);
+  }
+
+  private void highlightInBackground(int start, int end) throws BadLocationException {
+    List<Position[]> chunks = new ArrayList<>();
+    int chunkStart = start;
+    while (chunkStart < end) {
+      int chunkEnd = chunkStart + CHUNK_SIZE < end ? findTokenEnd(chunkStart + CHUNK_SIZE) : end;
+      chunks.add(new Position[] {createPosition(chunkStart), createPosition(chunkEnd)});
+      chunkStart = chunkEnd;
     }
-    return endOfToken + 1;
+    // viewport-first: List#sort is stable, so the rest keep their document order
+    chunks.sort(Comparator.comparing(c -> c[1].getOffset() < visibleStart || c[0].getOffset() > visibleEnd));
+    chunks.forEach(this::scheduleChunk);
+  }
+
+  // The chunk is scanned under the read lock on the worker thread, and the
+  // attributes are applied in one batch on the EDT. If the document has been
+  // edited in the meantime the chunk is scanned again, its bounds are tracked
+  // by the Positions.
+  private void scheduleChunk(Position[] chunk) {
+    EXECUTOR.execute(() -> {
+      TokenRuns tokens = new TokenRuns();
+      int[] scanned = new int[3];
+      render(() -> {
+        int start = chunk[0].getOffset();
+        int end = chunk[1].getOffset();
+        if (start < end) {
+          Segment text = new Segment();
+          try {
+            getText(start, end - start, text);
+          } catch (BadLocationException ex) {
+            return;
+          }
+          checkForTokens(text, start, tokens);
+        }
+        scanned[0] = start;
+        scanned[1] = end;
+        scanned[2] = modificationCount;
+      });
+      EventQueue.invokeLater(() -> {
+        if (scanned[2] != modificationCount) {
+          scheduleChunk(chunk);
+        } else if (scanned[0] < scanned[1]) {
+          applyRuns(scanned[0], scanned[1], tokens);
+        }
+      });
+    });
+  }
+
+  private void checkForTokens(Segment text, int startOffset, TokenRuns tokens) {
+    char[] array = text.array;
+    int end = text.offset + text.count;
+    int index = text.offset;
+    while (index < end) {
+      while (index < end && isDelimiter(array[index])) {
+        index++;
+      }
+      int endOfToken = index;
+      while (endOfToken < end && !isDelimiter(array[endOfToken])) {
+        endOfToken++;
+      }
+      int keyword = findKeyword(array, index, endOfToken - index);
+      // if (keywords.containsKey(token)) {
+      //  setCharacterAttributes(startOffset, endOfToken - startOffset, keywords.get(token), false);
+      if (keyword >= 0) {
+        tokens.add(startOffset + index - text.offset, endOfToken - index, keyword);
+      }
+      index = endOfToken;
+    }
+  }
+
+  private int findKeyword(char[] array, int offset, int length) {
+    for (int i = 0; i < keywords.size(); i++) {
+      String name = keywords.get(i).getName();
+      if (name.length() == length && regionMatches(name, array, offset)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(String name, char[] array, int offset) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != array[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected boolean isDelimiter(char character) {
+    return Character.isWhitespace(character) || OPERANDS.indexOf(character) >= 0;
+  }
+}
+
+// A growable list of (offset, length, keyword index) triples.
+class TokenRuns {
+  private int[] data = new int[3 * 16];
+  private int size;
+
+  public void add(int offset, int length, int keyword) {
+    if (3 * size + 3 > data.length) {
+      data = Arrays.copyOf(data, data.length * 2);
+    }
+    data[3 * size] = offset;
+    data[3 * size + 1] = length;
+    data[3 * size + 2] = keyword;
+    size++;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getOffset(int i) {
+    return data[3 * i];
+  }
+
+  public int getLength(int i) {
+    return data[3 * i + 1];
   }
 
-  protected boolean isDelimiter(String character) {
-    return Character.isWhitespace(character.charAt(0)) || OPERANDS.contains(character);
+  public int getKeyword(int i) {
+    return data[3 * i + 2];
   }
 }
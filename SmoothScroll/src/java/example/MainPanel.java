@@ -7,7 +7,10 @@ package example;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -52,21 +55,33 @@ public final class MainPanel extends JPanel {
       Rectangle dest = textArea.modelToView(elem.getStartOffset());
       // Java 9: Rectangle dest = textArea.modelToView2D(elem.getStartOffset()).getBounds();
       Rectangle current = scroll.getViewport().getViewRect();
-      new Timer(20, e -> {
-        Timer animator = (Timer) e.getSource();
-        if (dest.y < current.y && animator.isRunning()) {
-          int d = Math.max(1, (current.y - dest.y) / 2);
-          current.y = current.y - d;
-          textArea.scrollRectToVisible(current);
-        } else if (dest.y > current.y && animator.isRunning()) {
-          int d = Math.max(1, (dest.y - current.y) / 2);
-          current.y = current.y + d;
-          textArea.scrollRectToVisible(current);
-        } else {
+      // new Timer(20, e -> {
+      //   Timer animator = (Timer) e.getSource();
+      //   if (dest.y < current.y && animator.isRunning()) {
+      //     int d = Math.max(1, (current.y - dest.y) / 2);
+      //     current.y = current.y - d;
+      //     textArea.scrollRectToVisible(current);
+      //   } else if (dest.y > current.y && animator.isRunning()) {
+      //     int d = Math.max(1, (dest.y - current.y) / 2);
+      //     current.y = current.y + d;
+      //     textArea.scrollRectToVisible(current);
+      //   } else {
+      //     textArea.setCaretPosition(elem.getStartOffset());
+      //     animator.stop();
+      //   }
+      // }).start();
+      AnimationClock.getInstance().start(textArea, 20, steps -> {
+        for (int i = 0; i < steps && current.y != dest.y; i++) {
+          int d = Math.max(1, Math.abs(dest.y - current.y) / 2);
+          current.y += dest.y < current.y ? -d : d;
+        }
+        textArea.scrollRectToVisible(current);
+        if (current.y == dest.y) {
           textArea.setCaretPosition(elem.getStartOffset());
-          animator.stop();
+          return false;
         }
-      }).start();
+        return true;
+      });
     } catch (BadLocationException ex) {
       UIManager.getLookAndFeel().provideErrorFeedback(textArea);
     }
@@ -183,3 +198,104 @@ class LineNumberView extends JComponent {
     }
   }
 }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
@@ -11,6 +11,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import javax.swing.*;
@@ -28,9 +32,10 @@ public final class MainPanel extends JPanel {
     JRadioButton sort2 = new JRadioButton("2: selection sort");
     // JRadioButton sort3 = new JRadioButton("3: iterative merge sort"); // JDK 1.6.0
     JRadioButton sort3 = new JRadioButton("3: TimSort"); // JDK 1.7.0
+    JRadioButton sort4 = new JRadioButton("4: parallel merge sort");
     JRadioButton reset = new JRadioButton("reset");
 
-    JPanel box = new JPanel(new GridLayout(2, 2));
+    JPanel box = new JPanel(new GridLayout(3, 2));
     ActionListener listener = e -> {
       JRadioButton check = (JRadioButton) e.getSource();
       if (check.equals(reset)) {
@@ -39,20 +44,27 @@ public final class MainPanel extends JPanel {
         TreeUtil.COMPARE_COUNTER.set(0);
         TreeUtil.SWAP_COUNTER.set(0);
         DefaultMutableTreeNode r = TreeUtil.deepCopyTree(root, (DefaultMutableTreeNode) root.clone());
-        if (check.equals(sort1)) {
-          TreeUtil.sortTree1(r);
-        } else if (check.equals(sort2)) {
-          TreeUtil.sortTree2(r);
+        if (check.equals(sort4)) {
+          DefaultTreeModel model = new DefaultTreeModel(r);
+          tree.setModel(model);
+          TreeUtil.sortTree4(model);
+          log(check.getText());
         } else {
-          TreeUtil.sortTree3(r);
+          if (check.equals(sort1)) {
+            TreeUtil.sortTree1(r);
+          } else if (check.equals(sort2)) {
+            TreeUtil.sortTree2(r);
+          } else {
+            TreeUtil.sortTree3(r);
+          }
+          log(check.getText());
+          tree.setModel(new DefaultTreeModel(r));
         }
-        log(check.getText());
-        tree.setModel(new DefaultTreeModel(r));
       }
       TreeUtil.expandAll(tree);
     };
     ButtonGroup bg = new ButtonGroup();
-    Stream.of(reset, sort1, sort2, sort3).forEach(check -> {
+    Stream.of(reset, sort1, sort2, sort3, sort4).forEach(check -> {
       box.add(check);
       bg.add(check);
       check.addActionListener(listener);
@@ -121,8 +133,13 @@ final class TreeUtil {
   // }
 
   // JDK 1.8.0
-  private static Comparator<DefaultMutableTreeNode> tnc = Comparator.comparing(DefaultMutableTreeNode::isLeaf)
+  private static final Comparator<DefaultMutableTreeNode> NODE_ORDER = Comparator.comparing(DefaultMutableTreeNode::isLeaf)
       .thenComparing(n -> n.getUserObject().toString());
+  private static Comparator<DefaultMutableTreeNode> tnc = (a, b) -> {
+    COMPARE_COUNTER.getAndIncrement();
+    return NODE_ORDER.compare(a, b);
+  };
+  private static final int INSERTION_SORT_THRESHOLD = 16;
 
   private TreeUtil() {
     /* Singleton */
@@ -224,6 +241,102 @@ final class TreeUtil {
         .forEach(TreeUtil::sort3);
   }
 
+  // Sorts the children of every parent below the root of the model.
+  // The sorted orders are computed on the fork-join pool without touching the
+  // tree; the caller thread then re-attaches each parent's children in one pass
+  // and fires one nodeStructureChanged per parent whose order changed.
+  public static void sortTree4(DefaultTreeModel model) {
+    Queue<SortedChildren> results = new ConcurrentLinkedQueue<>();
+    ForkJoinPool.commonPool().invoke(new SortTask((DefaultMutableTreeNode) model.getRoot(), results));
+    for (SortedChildren sc: results) {
+      sc.parent.removeAllChildren();
+      for (DefaultMutableTreeNode child: sc.children) {
+        sc.parent.add(child);
+      }
+      model.nodeStructureChanged(sc.parent);
+    }
+  }
+
+  private static final class SortedChildren {
+    private final DefaultMutableTreeNode parent;
+    private final DefaultMutableTreeNode[] children;
+
+    SortedChildren(DefaultMutableTreeNode parent, DefaultMutableTreeNode... children) {
+      this.parent = parent;
+      this.children = children;
+    }
+  }
+
+  private static final class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient DefaultMutableTreeNode parent;
+    private final transient Queue<SortedChildren> results;
+
+    SortTask(DefaultMutableTreeNode parent, Queue<SortedChildren> results) {
+      super();
+      this.parent = parent;
+      this.results = results;
+    }
+
+    @Override protected void compute() {
+      int n = parent.getChildCount();
+      DefaultMutableTreeNode[] children = new DefaultMutableTreeNode[n];
+      for (int i = 0; i < n; i++) {
+        children[i] = (DefaultMutableTreeNode) parent.getChildAt(i);
+      }
+      DefaultMutableTreeNode[] sorted = children.clone();
+      mergeSort(sorted, children.clone(), 0, n);
+      int moved = 0;
+      for (int i = 0; i < n; i++) {
+        if (sorted[i] != children[i]) {
+          moved++;
+        }
+      }
+      if (moved > 0) {
+        SWAP_COUNTER.getAndAdd(moved);
+        results.add(new SortedChildren(parent, sorted));
+      }
+      List<SortTask> subtasks = new ArrayList<>();
+      for (DefaultMutableTreeNode child: children) {
+        if (!child.isLeaf()) {
+          subtasks.add(new SortTask(child, results));
+        }
+      }
+      invokeAll(subtasks);
+    }
+  }
+
+  // Stable top-down merge sort of a[from, to), using aux (a copy of a) as scratch.
+  private static void mergeSort(DefaultMutableTreeNode[] a, DefaultMutableTreeNode[] aux, int from, int to) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      for (int i = from + 1; i < to; i++) {
+        DefaultMutableTreeNode node = a[i];
+        int j = i;
+        while (j > from && tnc.compare(a[j - 1], node) > 0) {
+          a[j] = a[j - 1];
+          j--;
+        }
+        a[j] = node;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    // sort each half of aux into place, then merge them back into a
+    mergeSort(aux, a, from, mid);
+    mergeSort(aux, a, mid, to);
+    if (tnc.compare(aux[mid - 1], aux[mid]) <= 0) {
+      System.arraycopy(aux, from, a, from, to - from);
+      return;
+    }
+    for (int i = from, p = from, q = mid; i < to; i++) {
+      if (q >= to || p < mid && tnc.compare(aux[p], aux[q]) <= 0) {
+        a[i] = aux[p++];
+      } else {
+        a[i] = aux[q++];
+      }
+    }
+  }
+
   public static DefaultMutableTreeNode deepCopyTree(DefaultMutableTreeNode src, DefaultMutableTreeNode tgt) {
     // Java 9: Collections.list(src.children()).stream()
     Collections.list((Enumeration<?>) src.children()).stream()
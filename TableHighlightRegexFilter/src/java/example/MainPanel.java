@@ -5,7 +5,14 @@
 package example;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -61,6 +68,29 @@ public final class MainPanel extends JPanel {
     });
     fireDocumentChangeEvent(sorter);
 
+    JLabel result = new JLabel(" ");
+    JButton benchButton = new JButton("paint benchmark");
+    benchButton.addActionListener(e -> {
+      benchButton.setEnabled(false);
+      result.setText("running...");
+      new PaintBenchmark(field.getText().trim()) {
+        @Override protected void done() {
+          try {
+            result.setText(get());
+          } catch (InterruptedException ex) {
+            result.setText("Interrupted");
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            result.setText(Objects.toString(ex.getCause()));
+          }
+          benchButton.setEnabled(true);
+        }
+      }.execute();
+    });
+    JPanel bp = new JPanel(new BorderLayout(5, 5));
+    bp.add(benchButton, BorderLayout.WEST);
+    bp.add(result);
+
     JPanel sp = new JPanel(new BorderLayout(5, 5));
     sp.add(new JLabel("regex pattern:"), BorderLayout.WEST);
     sp.add(field);
@@ -70,6 +100,7 @@ public final class MainPanel extends JPanel {
     setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
     add(sp, BorderLayout.NORTH);
     add(new JScrollPane(table));
+    add(bp, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -108,7 +139,152 @@ public final class MainPanel extends JPanel {
   }
 }
 
-class HighlightTableCellRenderer extends JTextField implements TableCellRenderer {
+// Paints the cell text and the regex matches directly, instead of laying out
+// a JTextField with a Highlighter for every cell. The pattern is compiled
+// once per change and the match ranges are cached per model cell, and they
+// are reused while the cell value is the same object.
+class HighlightTableCellRenderer extends JComponent implements TableCellRenderer {
+  private static final Color BACKGROUND_SELECTION_COLOR = new Color(0xDC_F0_FF);
+  private static final Color HIGHLIGHT_COLOR = Color.YELLOW;
+  private static final int MAX_CACHED_CELLS = 4096;
+  private static final int[] NO_MATCHES = new int[0];
+  private final Map<Long, CellMatches> cache = new LinkedHashMap<Long, CellMatches>(256, .75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<Long, CellMatches> eldest) {
+      return size() > MAX_CACHED_CELLS;
+    }
+  };
+  private String pattern = "";
+  private transient Pattern compiled;
+  private String text = "";
+  private int[] ranges = NO_MATCHES;
+
+  protected HighlightTableCellRenderer() {
+    super();
+    setOpaque(true);
+    setBorder(BorderFactory.createEmptyBorder(1, 2, 1, 2));
+    setForeground(Color.BLACK);
+    setBackground(Color.WHITE);
+  }
+
+  public boolean updatePattern(String str) {
+    if (Objects.equals(str, pattern)) {
+      return false;
+    }
+    pattern = str;
+    cache.clear();
+    try {
+      compiled = str.isEmpty() ? null : Pattern.compile(str);
+    } catch (PatternSyntaxException ex) {
+      compiled = null;
+    }
+    return true;
+  }
+
+  @Override public void updateUI() {
+    super.updateUI();
+    setFont(UIManager.getFont("Table.font"));
+  }
+
+  @Override public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+    text = Objects.toString(value, "");
+    setFont(table.getFont());
+    setBackground(isSelected ? BACKGROUND_SELECTION_COLOR : Color.WHITE);
+    ranges = getMatches(table.convertRowIndexToModel(row), table.convertColumnIndexToModel(column), value);
+    return this;
+  }
+
+  private int[] getMatches(int row, int column, Object value) {
+    if (Objects.isNull(compiled) || text.isEmpty()) {
+      return NO_MATCHES;
+    }
+    Long key = (long) row << 32 | column;
+    CellMatches m = cache.get(key);
+    if (Objects.isNull(m) || m.value != value) {
+      m = new CellMatches(value, findMatches(compiled, text));
+      cache.put(key, m);
+    }
+    return m.ranges;
+  }
+
+  private static int[] findMatches(Pattern pattern, String txt) {
+    Matcher matcher = pattern.matcher(txt);
+    int[] found = NO_MATCHES;
+    int size = 0;
+    int pos = 0;
+    while (matcher.find(pos) && matcher.end() > matcher.start()) {
+      if (size == found.length) {
+        found = Arrays.copyOf(found, Math.max(4, size * 2));
+      }
+      found[size++] = matcher.start();
+      found[size++] = matcher.end();
+      pos = matcher.end();
+    }
+    return size == found.length ? found : Arrays.copyOf(found, size);
+  }
+
+  @Override protected void paintComponent(Graphics g) {
+    Graphics2D g2 = (Graphics2D) g.create();
+    g2.setPaint(getBackground());
+    g2.fillRect(0, 0, getWidth(), getHeight());
+    Map<?, ?> hints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    if (Objects.nonNull(hints)) {
+      g2.addRenderingHints(hints);
+    }
+    g2.setFont(getFont());
+    FontMetrics fm = g2.getFontMetrics();
+    Insets i = getInsets();
+    int h = getHeight() - i.top - i.bottom;
+    int y = i.top + (h - fm.getHeight()) / 2;
+    g2.setPaint(HIGHLIGHT_COLOR);
+    for (int k = 0; k < ranges.length; k += 2) {
+      double x0 = i.left + fm.getStringBounds(text, 0, ranges[k], g2).getWidth();
+      double x1 = i.left + fm.getStringBounds(text, 0, ranges[k + 1], g2).getWidth();
+      g2.fillRect((int) x0, y, (int) Math.ceil(x1) - (int) x0, fm.getHeight());
+    }
+    g2.setPaint(getForeground());
+    g2.drawString(text, i.left, y + fm.getAscent());
+    g2.dispose();
+  }
+
+  // Overridden for performance reasons, see DefaultTableCellRenderer
+  @Override public void invalidate() {
+    /* Overridden for performance reasons. */
+  }
+
+  @Override public void validate() {
+    /* Overridden for performance reasons. */
+  }
+
+  @Override public void revalidate() {
+    /* Overridden for performance reasons. */
+  }
+
+  @Override public void repaint(long tm, int x, int y, int width, int height) {
+    /* Overridden for performance reasons. */
+  }
+
+  @Override public void repaint(Rectangle r) {
+    /* Overridden for performance reasons. */
+  }
+
+  @Override public void repaint() {
+    /* Overridden for performance reasons. */
+  }
+
+  private static class CellMatches {
+    protected final Object value;
+    protected final int[] ranges;
+
+    protected CellMatches(Object value, int[] ranges) {
+      this.value = value;
+      this.ranges = ranges;
+    }
+  }
+}
+
+// The previous renderer: recompiles the pattern and lays out a JTextField
+// with a Highlighter for every painted cell. Kept for PaintBenchmark.
+class TextFieldHighlightTableCellRenderer extends JTextField implements TableCellRenderer {
   private static final Color BACKGROUND_SELECTION_COLOR = new Color(0xDC_F0_FF);
   private final transient HighlightPainter highlightPainter = new DefaultHighlightPainter(Color.YELLOW);
   private String pattern = "";
@@ -156,3 +332,94 @@ class HighlightTableCellRenderer extends JTextField implements TableCellRenderer
     return this;
   }
 }
+
+// Scrolls a filtered table through its rows a few rows at a time and paints
+// the whole viewport into an offscreen image on every step, once with each
+// renderer. The tables and renderers are created on the worker thread and are
+// never shown, so they are confined to it and the EDT is not blocked.
+// Each time is the median of REPEAT runs after one warm-up run, and every
+// run starts with a new table and renderer, so no match cache is carried over.
+class PaintBenchmark extends SwingWorker<String, Void> {
+  private static final int ROW_COUNT = 100_000;
+  private static final int SCROLLED_ROWS = 300;
+  private static final int STEP = 3;
+  private static final int REPEAT = 5;
+  private static final String[] WORDS = {"aa", "ab", "abb", "abc", "bb", "bac", "cab", "ccc", "ddd", "eab"};
+  private final String regex;
+
+  protected PaintBenchmark(String pattern) {
+    super();
+    this.regex = pattern.isEmpty() ? "ab+" : pattern;
+  }
+
+  @Override protected String doInBackground() {
+    try {
+      Pattern.compile(regex);
+    } catch (PatternSyntaxException ex) {
+      return ex.getDescription();
+    }
+    DefaultTableModel model = new DefaultTableModel(new String[] {"A", "B"}, 0);
+    Random rnd = new Random(1L);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      model.addRow(new Object[] {makeText(rnd), makeText(rnd)});
+    }
+    long t0 = measure(() -> {
+      TextFieldHighlightTableCellRenderer old = new TextFieldHighlightTableCellRenderer();
+      old.updatePattern(regex);
+      return makeTable(model, regex, old);
+    });
+    long t1 = measure(() -> {
+      HighlightTableCellRenderer renderer = new HighlightTableCellRenderer();
+      renderer.updatePattern(regex);
+      return makeTable(model, regex, renderer);
+    });
+    return String.format("JTextField: %d ms, cached: %d ms (median of %d)", t0, t1, REPEAT);
+  }
+
+  private static long measure(Supplier<JTable> factory) {
+    paint(factory.get()); // warm up
+    long[] times = new long[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      JTable table = factory.get();
+      long start = System.nanoTime();
+      paint(table);
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2] / 1_000_000;
+  }
+
+  private static String makeText(Random rnd) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+    }
+    return sb.toString().trim();
+  }
+
+  private static JTable makeTable(TableModel model, String regex, TableCellRenderer renderer) {
+    JTable table = new JTable(model);
+    TableRowSorter<TableModel> sorter = new TableRowSorter<>(model);
+    sorter.setRowFilter(RowFilter.regexFilter(regex));
+    table.setRowSorter(sorter);
+    table.setDefaultRenderer(Object.class, renderer);
+    table.setSize(320, table.getRowHeight() * table.getRowCount());
+    table.doLayout();
+    return table;
+  }
+
+  private static void paint(JTable table) {
+    int width = table.getWidth();
+    int height = table.getRowHeight() * 12;
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int rows = Math.min(SCROLLED_ROWS, table.getRowCount());
+    for (int row = 0; row < rows; row += STEP) {
+      Graphics2D g2 = image.createGraphics();
+      int y = row * table.getRowHeight();
+      g2.translate(0, -y);
+      g2.setClip(0, y, width, height);
+      table.paint(g2);
+      g2.dispose();
+    }
+  }
+}
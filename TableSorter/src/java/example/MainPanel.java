@@ -5,6 +5,7 @@
 package example;
 
 import java.awt.*;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
@@ -52,7 +53,35 @@ public final class MainPanel extends JPanel {
       }
     };
 
+    JTextArea result = new JTextArea(3, 20);
+    result.setEditable(false);
+    JButton benchButton = new JButton("sort benchmark");
+    benchButton.addActionListener(e -> {
+      benchButton.setEnabled(false);
+      result.setText("running...");
+      new SortBenchmark() {
+        @Override protected void process(List<String> chunks) {
+          if (result.getText().startsWith("running")) {
+            result.setText("");
+          }
+          chunks.forEach(line -> result.append(line + "\n"));
+        }
+
+        @Override protected void done() {
+          benchButton.setEnabled(true);
+        }
+      }.execute();
+    });
+    JPanel bp = new JPanel(new BorderLayout(5, 5));
+    bp.add(benchButton, BorderLayout.NORTH);
+    bp.add(new JScrollPane(result));
+
+    JCheckBox check = new JCheckBox("parallel sorting");
+    check.addActionListener(e -> sorter.setParallelSorting(((JCheckBox) e.getSource()).isSelected()));
+
+    add(check, BorderLayout.NORTH);
     add(new JScrollPane(table));
+    add(bp, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -75,3 +104,4 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
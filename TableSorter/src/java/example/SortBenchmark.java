@@ -0,0 +1,133 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+
+// Sorts 10k, 100k and 1M rows by two columns (String, then Integer) with
+// the sort-key arrays of TableSorter#sortRows(...), serial and parallel,
+// and with legacySort(...), a re-implementation of the sort of the old
+// TableSorter: a List of boxed row indexes sorted by a Comparator that reads
+// the model on every comparison. The old class itself is not measured.
+// Runs on a worker thread; each size is warmed up once, then the median
+// of REPEAT runs is reported. It first checks on the EDT that a selected
+// row stays selected when an update moves it.
+class SortBenchmark extends SwingWorker<Void, String> {
+  private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+  private static final int REPEAT = 3;
+  private static final int[] COLUMNS = {0, 1};
+  private static final int[] DIRECTIONS = {TableSorter.ASCENDING, TableSorter.DESCENDING};
+
+  @Override protected Void doInBackground() throws InterruptedException {
+    AtomicBoolean follows = new AtomicBoolean();
+    try {
+      EventQueue.invokeAndWait(() -> follows.set(selectionFollowsUpdatedRow()));
+    } catch (InvocationTargetException ex) {
+      ex.printStackTrace();
+    }
+    publish("selection follows an updated row: " + (follows.get() ? "ok" : "failed"));
+    publish("rows: legacy (re-implemented) / sort keys / parallel (median of " + REPEAT + ")");
+    for (int size: SIZES) {
+      if (isCancelled()) {
+        break;
+      }
+      TableModel model = makeModel(size);
+      TableSorter sorter = new TableSorter(model);
+      sorter.setSortingStatus(0, TableSorter.ASCENDING);
+      sorter.setSortingStatus(1, TableSorter.DESCENDING);
+      long legacy = measure(() -> legacySort(model, COLUMNS, DIRECTIONS));
+      long serial = measure(() -> sorter.sortRows(sorter.sortingColumns, size, false));
+      long parallel = measure(() -> sorter.sortRows(sorter.sortingColumns, size, true));
+      publish(String.format("%,d: %d / %d / %d ms", size, legacy, serial, parallel));
+    }
+    return null;
+  }
+
+  private static long measure(Runnable task) {
+    task.run(); // warm up
+    long[] times = new long[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      long start = System.nanoTime();
+      task.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2] / 1_000_000;
+  }
+
+  private static boolean selectionFollowsUpdatedRow() {
+    Object[][] data = {{"a"}, {"b"}, {"c"}, {"d"}, {"e"}};
+    DefaultTableModel model = new DefaultTableModel(data, new Object[] {"key"});
+    TableSorter sorter = new TableSorter(model);
+    JTable table = new JTable(sorter);
+    sorter.setSortingStatus(0, TableSorter.ASCENDING);
+    table.getValueAt(0, 0); // sorts the rows as painting would
+    table.setRowSelectionInterval(1, 1); // "b"
+    model.setValueAt("z", 1, 0); // moves from the second row to the last one
+    int[] selection = table.getSelectedRows();
+    return selection.length == 1 && "z".equals(table.getValueAt(selection[0], 0));
+  }
+
+  private static TableModel makeModel(int size) {
+    Random rnd = new Random(1L);
+    String[] names = new String[size];
+    Integer[] numbers = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      names[i] = "row" + rnd.nextInt(size / 10);
+      numbers[i] = rnd.nextInt();
+    }
+    return new AbstractTableModel() {
+      @Override public int getRowCount() {
+        return size;
+      }
+
+      @Override public int getColumnCount() {
+        return 2;
+      }
+
+      @Override public Class<?> getColumnClass(int column) {
+        return column == 0 ? String.class : Integer.class;
+      }
+
+      @Override public Object getValueAt(int row, int column) {
+        return column == 0 ? names[row] : numbers[row];
+      }
+    };
+  }
+
+  // the sort of the original TableSorter: List<Row> + RowComparator
+  @SuppressWarnings("unchecked")
+  private static List<Integer> legacySort(TableModel model, int[] columns, int[] directions) {
+    List<Integer> rows = new ArrayList<>(model.getRowCount());
+    IntStream.range(0, model.getRowCount()).forEach(rows::add);
+    rows.sort((row1, row2) -> {
+      for (int i = 0; i < columns.length; i++) {
+        int column = columns[i];
+        Object o1 = model.getValueAt(row1, column);
+        Object o2 = model.getValueAt(row2, column);
+        Comparator<Object> comparator = (Comparator<Object>) (Comparator<?>) Comparator.naturalOrder();
+        int comparison = Objects.compare(o1, o2, Comparator.nullsFirst(comparator));
+        if (comparison != 0) {
+          return directions[i] == TableSorter.DESCENDING ? ~comparison + 1 : comparison;
+        }
+      }
+      return row1 - row2;
+    });
+    return rows;
+  }
+}
@@ -39,13 +39,20 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javax.swing.*;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
@@ -117,15 +124,18 @@ public class TableSorter extends AbstractTableModel {
 
   protected TableModel tableModel;
 
-  protected final List<Row> viewToModel = new ArrayList<>();
-  protected final List<Integer> modelToView = new ArrayList<>();
+  protected int[] viewToModel;
+  protected int[] modelToView;
   protected final List<Directive> sortingColumns = new ArrayList<>();
 
   private JTableHeader tableHeader;
   private final transient Map<Class<?>, Comparator<?>> columnComparators = new ConcurrentHashMap<>();
-  private final transient RowComparator<Row> rowComparator = new RowComparator<>();
   private transient MouseListener mouseListener;
   private transient TableModelListener tableModelListener;
+  private boolean parallelSorting;
+  private transient int sortGeneration;
+  private transient boolean sortPending;
+  private final transient List<Runnable> sortedCallbacks = new ArrayList<>();
 
   public void readObject() {
     this.mouseListener = new MouseHandler();
@@ -156,8 +166,53 @@ public class TableSorter extends AbstractTableModel {
   }
 
   protected void clearSortingState() {
-    viewToModel.clear();
-    modelToView.clear();
+    viewToModel = null;
+    modelToView = null;
+    sortGeneration++;
+    sortPending = false;
+    if (!sortedCallbacks.isEmpty()) {
+      // after the event that goes with the cleared state
+      EventQueue.invokeLater(this::runSortedCallbacks);
+    }
+  }
+
+  /**
+   * Runs the task once the rows are shown in their new order: right away,
+   * or on the EDT just after a pending background sort has been swapped in.
+   *
+   * @param task the task to run on the EDT
+   */
+  public void whenSorted(Runnable task) {
+    if (sortPending) {
+      sortedCallbacks.add(task);
+    } else {
+      task.run();
+    }
+  }
+
+  private void runSortedCallbacks() {
+    if (!sortPending) {
+      List<Runnable> tasks = new ArrayList<>(sortedCallbacks);
+      sortedCallbacks.clear();
+      tasks.forEach(Runnable::run);
+    }
+  }
+
+  public boolean isParallelSorting() {
+    return parallelSorting;
+  }
+
+  /**
+   * In parallel mode the sort keys are extracted concurrently and the rows are
+   * merge sorted on the common fork-join pool. A sorting status change keeps
+   * the current row order until the background sort has finished, and then
+   * swaps in the new order on the EDT. The underlying TableModel must allow
+   * its values to be read from a worker thread.
+   *
+   * @param parallelSorting true to sort on the fork-join pool
+   */
+  public void setParallelSorting(boolean parallelSorting) {
+    this.parallelSorting = parallelSorting;
   }
 
   // public TableModel getTableModel() {
@@ -235,8 +290,7 @@ public class TableSorter extends AbstractTableModel {
   }
 
   private void sortingStatusChanged() {
-    clearSortingState();
-    fireTableDataChanged();
+    rowOrderChanged(false);
     Optional.ofNullable(tableHeader).ifPresent(Component::repaint);
     // if (tableHeader != null) {
     //   tableHeader.repaint();
@@ -292,32 +346,129 @@ public class TableSorter extends AbstractTableModel {
     }
   }
 
-  private List<Row> getViewToModel() {
-    if (viewToModel.isEmpty()) {
-      // int tableModelRowCount = tableModel.getRowCount();
-      // // viewToModel = new Row[tableModelRowCount];
-      // for (int row = 0; row < tableModelRowCount; row++) {
-      //   viewToModel.add(new Row(row));
-      // }
-      IntStream.range(0, tableModel.getRowCount()).forEach(row -> viewToModel.add(new Row(row)));
-      if (isSorting()) {
-        viewToModel.sort(rowComparator);
+  private void rowOrderChanged(boolean dataChanged) {
+    if (parallelSorting && isSorting()) {
+      // the current order stays on screen until the sorted rows are swapped in
+      boolean reset = sortInBackground();
+      if (reset || dataChanged) {
+        fireTableDataChanged();
       }
+    } else {
+      clearSortingState();
+      fireTableDataChanged();
+    }
+  }
+
+  // The sort keys of each sorting column are pulled out of the model only once,
+  // the rows are then sorted by index without boxing.
+  private int[] getViewToModel() {
+    if (Objects.isNull(viewToModel)) {
+      viewToModel = sortRows(sortingColumns, tableModel.getRowCount(), parallelSorting);
     }
     return viewToModel;
   }
 
+  protected int[] sortRows(List<Directive> directives, int rowCount, boolean parallel) {
+    int[] rows = IntStream.range(0, rowCount).toArray();
+    if (!directives.isEmpty()) {
+      RowIndexSorter sorter = createRowIndexSorter(directives, parallel);
+      if (parallel) {
+        sorter.parallelSort(rows);
+      } else {
+        sorter.sort(rows);
+      }
+    }
+    return rows;
+  }
+
+  // Keep showing the current row order (or the model order, if the row count
+  // has changed) while the rows are sorted on the fork-join pool.
+  // Returns true if the view has been reset to the model order.
+  private boolean sortInBackground() {
+    int rowCount = tableModel.getRowCount();
+    boolean reset = Objects.isNull(viewToModel) || viewToModel.length != rowCount;
+    if (reset) {
+      viewToModel = IntStream.range(0, rowCount).toArray();
+      modelToView = null;
+    }
+    int generation = ++sortGeneration;
+    sortPending = true;
+    List<Directive> directives = new ArrayList<>(sortingColumns);
+    CompletableFuture.supplyAsync(() -> sortRows(directives, rowCount, true))
+        .whenComplete((rows, ex) -> EventQueue.invokeLater(() -> {
+          if (generation != sortGeneration) {
+            return; // outdated
+          }
+          if (Objects.nonNull(ex)) {
+            // falls back to sorting on the EDT
+            ex.printStackTrace();
+            UIManager.getLookAndFeel().provideErrorFeedback(tableHeader);
+          }
+          if (Objects.nonNull(rows) && rows.length == tableModel.getRowCount()) {
+            viewToModel = rows;
+            modelToView = null;
+            sortPending = false;
+          } else {
+            clearSortingState();
+          }
+          fireTableDataChanged();
+          runSortedCallbacks();
+        }));
+    return reset;
+  }
+
+  protected RowIndexSorter createRowIndexSorter(List<Directive> directives, boolean parallel) {
+    Stream<Directive> stream = parallel ? directives.parallelStream() : directives.stream();
+    return new RowIndexSorter(stream.map(this::createSortKey).collect(Collectors.toList()));
+  }
+
+  @SuppressWarnings("unchecked")
+  protected SortKey createSortKey(Directive directive) {
+    int column = directive.column;
+    int direction = directive.direction;
+    Class<?> columnType = tableModel.getColumnClass(column);
+    if (!columnComparators.containsKey(columnType)) {
+      SortKey key = null;
+      if (LongSortKey.isSupported(columnType)) {
+        key = LongSortKey.create(tableModel, column, direction);
+      } else if (DoubleSortKey.isSupported(columnType)) {
+        key = DoubleSortKey.create(tableModel, column, direction);
+      }
+      if (Objects.nonNull(key)) {
+        return key;
+      }
+    }
+    Comparator<Object> comparator = getComparator(column);
+    if (Objects.equals(comparator, LEXICAL_COMPARATOR)) {
+      return StringSortKey.create(tableModel, column, direction);
+    }
+    return ObjectSortKey.create(tableModel, column, direction, comparator);
+  }
+
+  // Compares the current model values without extracting whole columns;
+  // used to patch the sorted rows when only a few of them have changed.
+  protected RowIndexSorter createModelRowIndexSorter() {
+    List<SortKey> keys = new ArrayList<>(sortingColumns.size());
+    for (Directive directive: sortingColumns) {
+      @SuppressWarnings("unchecked")
+      Comparator<Object> comparator = getComparator(directive.column);
+      keys.add(new ModelSortKey(tableModel, directive.column, directive.direction, comparator));
+    }
+    return new RowIndexSorter(keys);
+  }
+
   public int modelIndex(int viewIndex) {
-    return getViewToModel().get(viewIndex).modelIndex;
+    return getViewToModel()[viewIndex];
   }
 
-  protected List<Integer> getModelToView() {
-    if (modelToView.isEmpty()) {
-      // int n = getViewToModel().size();
-      // for (int i = 0; i < n; i++) {
-      //   modelToView.add(modelIndex(i));
-      // }
-      IntStream.range(0, getViewToModel().size()).forEach(i -> modelToView.add(modelIndex(i)));
+  protected int[] getModelToView() {
+    if (Objects.isNull(modelToView)) {
+      int[] rows = getViewToModel();
+      int[] array = new int[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        array[rows[i]] = i;
+      }
+      modelToView = array;
     }
     return modelToView;
   }
@@ -355,41 +506,6 @@ public class TableSorter extends AbstractTableModel {
   }
 
   // Helper classes
-  private class RowComparator<E extends Row> implements Comparator<E> {
-    @Override public int compare(Row r1, Row r2) {
-      int row1 = r1.modelIndex;
-      int row2 = r2.modelIndex;
-      for (Directive directive: sortingColumns) {
-        int column = directive.column;
-        Object o1 = tableModel.getValueAt(row1, column);
-        Object o2 = tableModel.getValueAt(row2, column);
-        // int comparison;
-        // // Define null less than everything, except null.
-        // if (o1 == null && o2 == null) {
-        //   comparison = 0;
-        // } else if (o1 == null) {
-        //   comparison = -1;
-        // } else if (o2 == null) {
-        //   comparison = 1;
-        // } else {
-        //   @SuppressWarnings("unchecked")
-        //   Comparator<Object> comparator = getComparator(column);
-        //   comparison = comparator.compare(o1, o2);
-        // }
-        // if (comparison != 0) {
-        //   return directive.direction == DESCENDING ? -comparison : comparison;
-        // }
-        @SuppressWarnings("unchecked")
-        Comparator<Object> comparator = getComparator(column);
-        int comparison = Objects.compare(o1, o2, Comparator.nullsFirst(comparator));
-        if (comparison != 0) {
-          return directive.direction == DESCENDING ? ~comparison + 1 : comparison;
-        }
-      }
-      return row1 - row2;
-    }
-  }
-
   private class TableModelHandler implements TableModelListener {
     @Override public void tableChanged(TableModelEvent e) {
       // If we're not sorting by anything, just pass the event along.
@@ -430,16 +546,165 @@ public class TableSorter extends AbstractTableModel {
       int fr = e.getFirstRow();
       int lr = e.getLastRow();
       if (fr == lr && column != TableModelEvent.ALL_COLUMNS && getSortingStatus(column) == NOT_SORTED) {
-        int viewIndex = getModelToView().get(fr);
+        int viewIndex = getModelToView()[fr];
         fireTableChanged(new TableModelEvent(TableSorter.this, viewIndex, viewIndex, column, e.getType()));
         return;
       }
 
+      // If the rows are already sorted and the event covers a bounded range,
+      // patch the permutation in place instead of re-sorting all the rows.
+      if (Objects.nonNull(viewToModel) && !sortPending && fr >= 0 && lr != Integer.MAX_VALUE) {
+        switch (e.getType()) {
+          case TableModelEvent.INSERT:
+            rowsInserted(fr, lr);
+            return;
+          case TableModelEvent.DELETE:
+            rowsDeleted(fr, lr);
+            return;
+          case TableModelEvent.UPDATE:
+            rowsUpdated(fr, lr);
+            return;
+          default:
+            break;
+        }
+      }
+
       // Something has happened to the data that may have invalidated the row order.
-      clearSortingState();
-      fireTableDataChanged();
+      rowOrderChanged(true);
       // return;
     }
+
+    private void rowsInserted(int firstRow, int lastRow) {
+      int count = lastRow - firstRow + 1;
+      int[] rows = viewToModel;
+      for (int i = 0; i < rows.length; i++) {
+        if (rows[i] >= firstRow) {
+          rows[i] += count;
+        }
+      }
+      int[] inserted = IntStream.rangeClosed(firstRow, lastRow).toArray();
+      int[] viewIndexes = insertRows(rows, inserted);
+      fireTableRowRuns(viewIndexes, TableModelEvent.INSERT);
+    }
+
+    private void rowsDeleted(int firstRow, int lastRow) {
+      int count = lastRow - firstRow + 1;
+      int[] viewIndexes = IntStream.rangeClosed(firstRow, lastRow).map(i -> getModelToView()[i]).sorted().toArray();
+      int[] rows = removeRows(viewToModel, viewIndexes);
+      for (int i = 0; i < rows.length; i++) {
+        if (rows[i] > lastRow) {
+          rows[i] -= count;
+        }
+      }
+      fireTableRowRuns(viewIndexes, TableModelEvent.DELETE);
+    }
+
+    // The model indexes are unchanged, but the updated rows may have to move.
+    // A DELETE event would clear the selection of a moved row, so the rows
+    // between the old and the new positions are reported as one UPDATE and
+    // the selection of the JTable is moved along with the model rows.
+    private void rowsUpdated(int firstRow, int lastRow) {
+      int[] oldIndexes = IntStream.rangeClosed(firstRow, lastRow).map(i -> getModelToView()[i]).sorted().toArray();
+      int[] updated = IntStream.rangeClosed(firstRow, lastRow).toArray();
+      int[] oldViewToModel = viewToModel;
+      int[] newIndexes = insertRows(removeRows(viewToModel, oldIndexes), updated);
+      if (Arrays.equals(oldIndexes, newIndexes)) {
+        fireTableRowRuns(newIndexes, TableModelEvent.UPDATE);
+      } else {
+        int first = Math.min(oldIndexes[0], newIndexes[0]);
+        int last = Math.max(oldIndexes[oldIndexes.length - 1], newIndexes[newIndexes.length - 1]);
+        fireTableChanged(new TableModelEvent(TableSorter.this, first, last, TableModelEvent.ALL_COLUMNS, TableModelEvent.UPDATE));
+        for (TableModelListener l: getTableModelListeners()) {
+          if (l instanceof JTable) {
+            moveSelection(((JTable) l).getSelectionModel(), oldViewToModel, first, last);
+          }
+        }
+      }
+    }
+
+    // Re-selects the rows of the span [first, last] by their new view indexes.
+    private void moveSelection(ListSelectionModel sm, int[] oldViewToModel, int first, int last) {
+      int min = Math.max(first, sm.getMinSelectionIndex());
+      int max = Math.min(last, sm.getMaxSelectionIndex());
+      int[] view = getModelToView();
+      int anchor = sm.getAnchorSelectionIndex();
+      int lead = sm.getLeadSelectionIndex();
+      sm.setValueIsAdjusting(true);
+      if (min <= max) {
+        int[] selected = IntStream.rangeClosed(min, max).filter(sm::isSelectedIndex).map(i -> view[oldViewToModel[i]]).toArray();
+        sm.removeSelectionInterval(min, max);
+        for (int i: selected) {
+          sm.addSelectionInterval(i, i);
+        }
+      }
+      if (anchor >= first && anchor <= last) {
+        sm.setAnchorSelectionIndex(view[oldViewToModel[anchor]]);
+      } else {
+        sm.setAnchorSelectionIndex(anchor);
+      }
+      if (sm instanceof DefaultListSelectionModel) {
+        int newLead = lead >= first && lead <= last ? view[oldViewToModel[lead]] : lead;
+        ((DefaultListSelectionModel) sm).moveLeadSelectionIndex(newLead);
+      }
+      sm.setValueIsAdjusting(false);
+    }
+
+    // Returns the sorted view indexes of the inserted model rows.
+    private int[] insertRows(int[] rows, int[] inserted) {
+      RowIndexSorter sorter = createModelRowIndexSorter();
+      sorter.sort(inserted);
+      int[] result = new int[rows.length + inserted.length];
+      int[] viewIndexes = new int[inserted.length];
+      int src = 0;
+      int dst = 0;
+      for (int i = 0; i < inserted.length; i++) {
+        int pos = sorter.insertionPoint(rows, inserted[i]);
+        System.arraycopy(rows, src, result, dst, pos - src);
+        dst += pos - src;
+        src = pos;
+        viewIndexes[i] = dst;
+        result[dst++] = inserted[i];
+      }
+      System.arraycopy(rows, src, result, dst, rows.length - src);
+      viewToModel = result;
+      modelToView = null;
+      return viewIndexes;
+    }
+
+    // The view indexes must be sorted in ascending order.
+    private int[] removeRows(int[] rows, int[] viewIndexes) {
+      int[] result = new int[rows.length - viewIndexes.length];
+      int src = 0;
+      int dst = 0;
+      for (int viewIndex: viewIndexes) {
+        System.arraycopy(rows, src, result, dst, viewIndex - src);
+        dst += viewIndex - src;
+        src = viewIndex + 1;
+      }
+      System.arraycopy(rows, src, result, dst, rows.length - src);
+      viewToModel = result;
+      modelToView = null;
+      return result;
+    }
+
+    // Fires one event per run of consecutive view indexes. Deletions are
+    // fired from the bottom up so that the indexes of the pending runs stay valid.
+    private void fireTableRowRuns(int[] viewIndexes, int type) {
+      List<int[]> runs = new ArrayList<>();
+      for (int i = 0; i < viewIndexes.length; i++) {
+        int start = viewIndexes[i];
+        while (i + 1 < viewIndexes.length && viewIndexes[i + 1] == viewIndexes[i] + 1) {
+          i++;
+        }
+        runs.add(new int[] {start, viewIndexes[i]});
+      }
+      if (type == TableModelEvent.DELETE) {
+        Collections.reverse(runs);
+      }
+      for (int[] run: runs) {
+        fireTableChanged(new TableModelEvent(TableSorter.this, run[0], run[1], TableModelEvent.ALL_COLUMNS, type));
+      }
+    }
   }
 
   private class MouseHandler extends MouseAdapter {
@@ -455,7 +720,9 @@ public class TableSorter extends AbstractTableModel {
       if (column != -1) {
         int status = getSortingStatus(column) + (e.isShiftDown() ? -1 : 1);
         if (!e.isControlDown()) {
-          cancelSorting();
+          // cancelSorting();
+          // no event here, setSortingStatus() below fires a single change
+          sortingColumns.clear();
         }
         // Cycle the sorting states through {NOT_SORTED, ASCENDING, DESCENDING} or
         // {NOT_SORTED, DESCENDING, ASCENDING} depending on whether shift is pressed.
@@ -587,12 +854,273 @@ class Directive implements Serializable {
   }
 }
 
-@SuppressWarnings("PMD.ShortClassName")
-class Row implements Serializable {
-  private static final long serialVersionUID = 1L;
-  public final int modelIndex;
+abstract class SortKey {
+  private final int direction;
 
-  protected Row(int index) {
-    this.modelIndex = index;
+  protected SortKey(int direction) {
+    this.direction = direction;
+  }
+
+  // Define null less than everything, except null.
+  protected abstract int compareKeys(int row1, int row2);
+
+  public int compare(int row1, int row2) {
+    int comparison = compareKeys(row1, row2);
+    return direction == TableSorter.DESCENDING ? ~comparison + 1 : comparison;
+  }
+}
+
+final class LongSortKey extends SortKey {
+  private final long[] keys;
+  private final boolean[] nulls;
+
+  private LongSortKey(long[] keys, boolean[] nulls, int direction) {
+    super(direction);
+    this.keys = keys;
+    this.nulls = nulls;
+  }
+
+  public static boolean isSupported(Class<?> type) {
+    return type == Integer.class || type == Long.class || type == Short.class || type == Byte.class;
+  }
+
+  // Returns null if the column contains a value that is not an integral Number.
+  public static SortKey create(TableModel model, int column, int direction) {
+    int rowCount = model.getRowCount();
+    long[] keys = new long[rowCount];
+    boolean[] nulls = new boolean[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      Object o = model.getValueAt(row, column);
+      if (Objects.isNull(o)) {
+        nulls[row] = true;
+      } else if (o instanceof Number && isSupported(o.getClass())) {
+        keys[row] = ((Number) o).longValue();
+      } else {
+        return null;
+      }
+    }
+    return new LongSortKey(keys, nulls, direction);
+  }
+
+  @Override protected int compareKeys(int row1, int row2) {
+    if (nulls[row1] || nulls[row2]) {
+      return Boolean.compare(nulls[row2], nulls[row1]);
+    }
+    return Long.compare(keys[row1], keys[row2]);
+  }
+}
+
+final class DoubleSortKey extends SortKey {
+  private final double[] keys;
+  private final boolean[] nulls;
+
+  private DoubleSortKey(double[] keys, boolean[] nulls, int direction) {
+    super(direction);
+    this.keys = keys;
+    this.nulls = nulls;
+  }
+
+  public static boolean isSupported(Class<?> type) {
+    return type == Double.class || type == Float.class;
+  }
+
+  // Returns null if the column contains a value that is not a Double or Float.
+  public static SortKey create(TableModel model, int column, int direction) {
+    int rowCount = model.getRowCount();
+    double[] keys = new double[rowCount];
+    boolean[] nulls = new boolean[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      Object o = model.getValueAt(row, column);
+      if (Objects.isNull(o)) {
+        nulls[row] = true;
+      } else if (o instanceof Number && isSupported(o.getClass())) {
+        keys[row] = ((Number) o).doubleValue();
+      } else {
+        return null;
+      }
+    }
+    return new DoubleSortKey(keys, nulls, direction);
+  }
+
+  @Override protected int compareKeys(int row1, int row2) {
+    if (nulls[row1] || nulls[row2]) {
+      return Boolean.compare(nulls[row2], nulls[row1]);
+    }
+    return Double.compare(keys[row1], keys[row2]);
+  }
+}
+
+// The LEXICAL_COMPARATOR calls toString() twice per comparison, so cache the strings.
+final class StringSortKey extends SortKey {
+  private static final Comparator<String> COMPARATOR = Comparator.nullsFirst(Comparator.naturalOrder());
+  private final String[] keys;
+
+  private StringSortKey(String[] keys, int direction) {
+    super(direction);
+    this.keys = keys;
+  }
+
+  public static SortKey create(TableModel model, int column, int direction) {
+    int rowCount = model.getRowCount();
+    String[] keys = new String[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      keys[row] = Objects.toString(model.getValueAt(row, column), null);
+    }
+    return new StringSortKey(keys, direction);
+  }
+
+  @Override protected int compareKeys(int row1, int row2) {
+    return COMPARATOR.compare(keys[row1], keys[row2]);
+  }
+}
+
+final class ObjectSortKey extends SortKey {
+  private final Object[] keys;
+  private final Comparator<Object> comparator;
+
+  private ObjectSortKey(Object[] keys, Comparator<Object> comparator, int direction) {
+    super(direction);
+    this.keys = keys;
+    this.comparator = Comparator.nullsFirst(comparator);
+  }
+
+  public static SortKey create(TableModel model, int column, int direction, Comparator<Object> comparator) {
+    int rowCount = model.getRowCount();
+    Object[] keys = new Object[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      keys[row] = model.getValueAt(row, column);
+    }
+    return new ObjectSortKey(keys, comparator, direction);
+  }
+
+  @Override protected int compareKeys(int row1, int row2) {
+    return comparator.compare(keys[row1], keys[row2]);
+  }
+}
+
+final class ModelSortKey extends SortKey {
+  private final TableModel model;
+  private final int column;
+  private final Comparator<Object> comparator;
+
+  protected ModelSortKey(TableModel model, int column, int direction, Comparator<Object> comparator) {
+    super(direction);
+    this.model = model;
+    this.column = column;
+    this.comparator = Comparator.nullsFirst(comparator);
+  }
+
+  @Override protected int compareKeys(int row1, int row2) {
+    return comparator.compare(model.getValueAt(row1, column), model.getValueAt(row2, column));
+  }
+}
+
+/**
+ * A stable merge sort of model row indexes, comparing the rows by the
+ * pre-extracted SortKeys and breaking ties by the model index.
+ */
+class RowIndexSorter {
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+  private final SortKey[] keys;
+
+  protected RowIndexSorter(List<SortKey> keys) {
+    this.keys = keys.toArray(new SortKey[0]);
+  }
+
+  public int compare(int row1, int row2) {
+    for (SortKey key: keys) {
+      int comparison = key.compare(row1, row2);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return row1 - row2;
+  }
+
+  // Returns the index of the first row in the sorted rows that is greater than the given row.
+  public int insertionPoint(int[] rows, int row) {
+    int low = 0;
+    int high = rows.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(rows[mid], row) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  public void sort(int[] rows) {
+    int[] src = rows.clone();
+    mergeSort(src, rows, 0, rows.length);
+  }
+
+  public void parallelSort(int[] rows) {
+    int[] src = rows.clone();
+    ForkJoinPool.commonPool().invoke(new MergeSortTask(src, rows, 0, rows.length));
+  }
+
+  // @see java.util.Arrays#legacyMergeSort(Object[])
+  protected void mergeSort(int[] src, int[] dest, int low, int high) {
+    int length = high - low;
+    if (length < INSERTION_SORT_THRESHOLD) {
+      for (int i = low + 1; i < high; i++) {
+        int row = dest[i];
+        int j = i - 1;
+        while (j >= low && compare(dest[j], row) > 0) {
+          dest[j + 1] = dest[j];
+          j--;
+        }
+        dest[j + 1] = row;
+      }
+      return;
+    }
+    int mid = (low + high) >>> 1;
+    mergeSort(dest, src, low, mid);
+    mergeSort(dest, src, mid, high);
+    merge(src, dest, low, mid, high);
+  }
+
+  protected void merge(int[] src, int[] dest, int low, int mid, int high) {
+    if (compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, low, dest, low, high - low);
+      return;
+    }
+    for (int i = low, p = low, q = mid; i < high; i++) {
+      if (q >= high || p < mid && compare(src[p], src[q]) <= 0) {
+        dest[i] = src[p++];
+      } else {
+        dest[i] = src[q++];
+      }
+    }
+  }
+
+  private class MergeSortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+    private final int[] src;
+    private final int[] dest;
+    private final int low;
+    private final int high;
+
+    protected MergeSortTask(int[] src, int[] dest, int low, int high) {
+      super();
+      this.src = src;
+      this.dest = dest;
+      this.low = low;
+      this.high = high;
+    }
+
+    @Override protected void compute() {
+      if (high - low < PARALLEL_THRESHOLD) {
+        mergeSort(src, dest, low, high);
+        return;
+      }
+      int mid = (low + high) >>> 1;
+      invokeAll(new MergeSortTask(dest, src, low, mid), new MergeSortTask(dest, src, mid, high));
+      merge(src, dest, low, mid, high);
+    }
   }
 }
@@ -6,33 +6,44 @@ package example;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.logging.StreamHandler;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   public static final String LOGGER_NAME = MethodHandles.lookup().lookupClass().getName();
   private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+  private static final int MAX_LINES = 10_000;
 
   private MainPanel() {
     super(new BorderLayout());
 
-    JTextArea textArea = new JTextArea();
-    // TEST: textArea.getDocument().addDocumentListener(new FIFODocumentListener(textArea));
-    textArea.setEditable(false);
+    // JTextArea textArea = new JTextArea();
+    // // TEST: textArea.getDocument().addDocumentListener(new FIFODocumentListener(textArea));
+    // textArea.setEditable(false);
+    // LOGGER.addHandler(new TextAreaHandler(new TextAreaOutputStream(textArea)));
+    LogConsole console = new LogConsole(MAX_LINES);
 
     LOGGER.setUseParentHandlers(false);
     LOGGER.setLevel(Level.ALL);
-    LOGGER.addHandler(new TextAreaHandler(new TextAreaOutputStream(textArea)));
+    LOGGER.addHandler(new LogConsoleHandler(console));
 
     // // TEST:
     // try {
@@ -49,7 +60,14 @@ public final class MainPanel extends JPanel {
     LOGGER.info(() -> "test, TEST");
 
     JButton button = new JButton("Clear");
-    button.addActionListener(e -> textArea.setText(""));
+    button.addActionListener(e -> console.clear());
+    JButton flood = new JButton("Flood");
+    flood.addActionListener(e -> new Thread(() -> {
+      for (int i = 0; i < 100_000; i++) {
+        int n = i;
+        LOGGER.fine(() -> "line " + n);
+      }
+    }).start());
     JTextField textField = new JTextField("aaa");
 
     Box box = Box.createHorizontalBox();
@@ -59,9 +77,11 @@ public final class MainPanel extends JPanel {
     box.add(Box.createHorizontalStrut(5));
     box.add(new JButton(new EnterAction(textField)));
     box.add(Box.createHorizontalStrut(5));
+    box.add(flood);
+    box.add(Box.createHorizontalStrut(5));
     box.add(button);
 
-    add(new JScrollPane(textArea));
+    add(new JScrollPane(console));
     add(box, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
@@ -169,63 +189,63 @@ class EnterAction extends AbstractAction {
 //   }
 // }
 
-class TextAreaOutputStream extends OutputStream {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-  private final JTextArea textArea;
-
-  protected TextAreaOutputStream(JTextArea textArea) {
-    super();
-    this.textArea = textArea;
-  }
-
-  @Override public void flush() throws IOException {
-    textArea.append(buffer.toString("UTF-8"));
-    buffer.reset();
-  }
-
-  @Override public void write(int b) {
-    buffer.write(b);
-  }
-
-  @Override public void write(byte[] b, int off, int len) {
-    buffer.write(b, off, len);
-  }
-}
-
-class TextAreaHandler extends StreamHandler {
-  private void configure() {
-    setFormatter(new SimpleFormatter());
-    try {
-      setEncoding("UTF-8");
-    } catch (IOException ex) {
-      try {
-        setEncoding(null);
-      } catch (IOException ex2) {
-        // doing a setEncoding with null should always work.
-        assert false;
-      }
-    }
-  }
-
-  protected TextAreaHandler(OutputStream os) {
-    super();
-    configure();
-    setOutputStream(os);
-  }
-
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method publish overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void publish(LogRecord record) {
-    super.publish(record);
-    flush();
-  }
-
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method close overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void close() {
-    flush();
-  }
-}
+// class TextAreaOutputStream extends OutputStream {
+//   private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+//   private final JTextArea textArea;
+//
+//   protected TextAreaOutputStream(JTextArea textArea) {
+//     super();
+//     this.textArea = textArea;
+//   }
+//
+//   @Override public void flush() throws IOException {
+//     textArea.append(buffer.toString("UTF-8"));
+//     buffer.reset();
+//   }
+//
+//   @Override public void write(int b) {
+//     buffer.write(b);
+//   }
+//
+//   @Override public void write(byte[] b, int off, int len) {
+//     buffer.write(b, off, len);
+//   }
+// }
+//
+// class TextAreaHandler extends StreamHandler {
+//   private void configure() {
+//     setFormatter(new SimpleFormatter());
+//     try {
+//       setEncoding("UTF-8");
+//     } catch (IOException ex) {
+//       try {
+//         setEncoding(null);
+//       } catch (IOException ex2) {
+//         // doing a setEncoding with null should always work.
+//         assert false;
+//       }
+//     }
+//   }
+//
+//   protected TextAreaHandler(OutputStream os) {
+//     super();
+//     configure();
+//     setOutputStream(os);
+//   }
+//
+//   // [UnsynchronizedOverridesSynchronized] Unsynchronized method publish overrides synchronized method in StreamHandler
+//   @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+//   @Override public synchronized void publish(LogRecord record) {
+//     super.publish(record);
+//     flush();
+//   }
+//
+//   // [UnsynchronizedOverridesSynchronized] Unsynchronized method close overrides synchronized method in StreamHandler
+//   @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+//   @Override public synchronized void close() {
+//     flush();
+//   }
+// }
 
 // // TEST:
 // // http://www.dreamincode.net/forums/topic/117537-external-program-output-to-jtextarea/
@@ -353,3 +373,303 @@ class TextAreaHandler extends StreamHandler {
 //     }
 //   }).start();
 // } catch (IOException ex) {}
+
+// A log view that renders the last lines from a fixed-capacity LineStore
+// instead of a growing Document, so memory stays bounded however long it runs.
+class LogConsole extends JComponent implements Scrollable {
+  private static final int FLUSH_INTERVAL = 40; // milliseconds
+  private final LogRingBuffer buffer;
+  private final LineStore lines;
+  private final Timer timer = new Timer(FLUSH_INTERVAL, e -> flushBuffer());
+  private final List<String> batch = new ArrayList<>();
+  private final LongAdder dropped = new LongAdder();
+
+  protected LogConsole(int maxLines) {
+    super();
+    this.buffer = new LogRingBuffer(Integer.highestOneBit(Math.max(1024, maxLines)) * 2);
+    this.lines = new LineStore(maxLines);
+  }
+
+  @Override public void setFont(Font font) {
+    super.setFont(font);
+    if (Objects.nonNull(lines)) {
+      FontMetrics fm = getFontMetrics(font);
+      lines.measure(fm::stringWidth);
+    }
+  }
+
+  @Override public void updateUI() {
+    super.updateUI();
+    setFont(new Font(Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextArea.font").getSize()));
+    setForeground(UIManager.getColor("TextArea.foreground"));
+    setBackground(UIManager.getColor("TextArea.background"));
+    setOpaque(true);
+  }
+
+  @Override public void addNotify() {
+    super.addNotify();
+    timer.start();
+  }
+
+  @Override public void removeNotify() {
+    timer.stop();
+    super.removeNotify();
+  }
+
+  // Thread safe. When the buffer is full, the lines are moved into the
+  // LineStore first, which evicts the oldest lines instead of the new ones.
+  // A producer thread waits for the EDT to do that, the EDT does it itself.
+  public void append(String line) {
+    while (!buffer.offer(line)) {
+      if (EventQueue.isDispatchThread()) {
+        flushBuffer();
+        continue;
+      }
+      try {
+        EventQueue.invokeAndWait(this::flushBuffer);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        dropped.increment();
+        return;
+      } catch (InvocationTargetException ex) {
+        throw new IllegalStateException(ex.getCause());
+      }
+    }
+  }
+
+  public void clear() {
+    lines.clear();
+    revalidate();
+    repaint();
+  }
+
+  // Moves all buffered lines into the LineStore, at most once per timer tick.
+  private void flushBuffer() {
+    buffer.drainTo(batch);
+    long count = dropped.sumThenReset();
+    if (count > 0) {
+      batch.add(String.format("... %d lines dropped", count));
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    boolean atBottom = isScrolledToBottom();
+    FontMetrics fm = getFontMetrics(getFont());
+    batch.forEach(line -> lines.add(line, fm.stringWidth(line)));
+    batch.clear();
+    revalidate();
+    repaint();
+    if (atBottom) {
+      EventQueue.invokeLater(() -> scrollRectToVisible(new Rectangle(getVisibleRect().x, getHeight() - 1, 1, 1)));
+    }
+  }
+
+  private boolean isScrolledToBottom() {
+    Rectangle r = getVisibleRect();
+    return r.y + r.height >= getHeight() - getLineHeight();
+  }
+
+  private int getLineHeight() {
+    return getFontMetrics(getFont()).getHeight();
+  }
+
+  @Override public Dimension getPreferredSize() {
+    Insets i = getInsets();
+    return new Dimension(i.left + i.right + lines.getMaxWidth(), i.top + i.bottom + lines.size() * getLineHeight());
+  }
+
+  @Override protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (isOpaque()) {
+      g.setColor(getBackground());
+      g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    }
+    Insets i = getInsets();
+    FontMetrics fm = g.getFontMetrics(getFont());
+    int lh = fm.getHeight();
+    int first = Math.max(0, (clip.y - i.top) / lh);
+    int last = Math.min(lines.size() - 1, (clip.y + clip.height - i.top) / lh);
+    g.setFont(getFont());
+    g.setColor(getForeground());
+    for (int row = first; row <= last; row++) {
+      g.drawString(lines.get(row), i.left, i.top + row * lh + fm.getAscent());
+    }
+  }
+
+  @Override public Dimension getPreferredScrollableViewportSize() {
+    return getPreferredSize();
+  }
+
+  @Override public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.VERTICAL ? getLineHeight() : 10;
+  }
+
+  @Override public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+  }
+
+  @Override public boolean getScrollableTracksViewportWidth() {
+    Container p = SwingUtilities.getUnwrappedParent(this);
+    return p instanceof JViewport && p.getWidth() > getPreferredSize().width;
+  }
+
+  @Override public boolean getScrollableTracksViewportHeight() {
+    Container p = SwingUtilities.getUnwrappedParent(this);
+    return p instanceof JViewport && p.getHeight() > getPreferredSize().height;
+  }
+}
+
+// A bounded, lock-free multi-producer single-consumer queue of lines.
+// A slot is released by the consumer before the head moves past it, so a
+// producer that sees enough room can always claim an empty slot.
+class LogRingBuffer {
+  private final AtomicReferenceArray<String> slots;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  protected LogRingBuffer(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    slots = new AtomicReferenceArray<>(capacity);
+    mask = capacity - 1;
+  }
+
+  public boolean offer(String line) {
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() >= slots.length()) {
+        return false;
+      }
+    } while (!tail.compareAndSet(t, t + 1));
+    slots.lazySet((int) t & mask, line);
+    return true;
+  }
+
+  // Called only from the consumer thread.
+  public void drainTo(Collection<String> c) {
+    long h = head.get();
+    long t = tail.get();
+    while (h < t) {
+      int idx = (int) h & mask;
+      String line = slots.get(idx);
+      if (Objects.isNull(line)) {
+        break; // claimed, but not yet published by the producer
+      }
+      slots.lazySet(idx, null);
+      c.add(line);
+      h++;
+      head.lazySet(h);
+    }
+  }
+}
+
+// A circular array of the last maxLines lines and their widths in pixels.
+class LineStore {
+  private final String[] lines;
+  private final int[] widths;
+  private int start;
+  private int size;
+  private int maxWidth;
+  private boolean maxWidthValid = true;
+
+  protected LineStore(int maxLines) {
+    lines = new String[maxLines];
+    widths = new int[maxLines];
+  }
+
+  public void add(String line, int width) {
+    int idx;
+    if (size < lines.length) {
+      idx = (start + size) % lines.length;
+      size++;
+    } else {
+      idx = start;
+      start = (start + 1) % lines.length;
+      // the widest line may have been evicted
+      maxWidthValid &= widths[idx] < maxWidth;
+    }
+    lines[idx] = line;
+    widths[idx] = width;
+    maxWidth = Math.max(maxWidth, width);
+  }
+
+  public int getMaxWidth() {
+    if (!maxWidthValid) {
+      maxWidth = 0;
+      for (int i = 0; i < size; i++) {
+        maxWidth = Math.max(maxWidth, widths[(start + i) % lines.length]);
+      }
+      maxWidthValid = true;
+    }
+    return maxWidth;
+  }
+
+  public void measure(ToIntFunction<String> width) {
+    for (int i = 0; i < size; i++) {
+      int idx = (start + i) % lines.length;
+      widths[idx] = width.applyAsInt(lines[idx]);
+    }
+    maxWidthValid = false;
+  }
+
+  public String get(int index) {
+    return lines[(start + index) % lines.length];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(lines, null);
+    start = 0;
+    size = 0;
+    maxWidth = 0;
+    maxWidthValid = true;
+  }
+}
+
+class LogConsoleHandler extends Handler {
+  private final LogConsole console;
+
+  protected LogConsoleHandler(LogConsole console) {
+    super();
+    this.console = console;
+    setFormatter(new SimpleFormatter());
+  }
+
+  @Override public void publish(LogRecord record) {
+    if (!isLoggable(record)) {
+      return;
+    }
+    String text;
+    try {
+      text = getFormatter().format(record);
+    } catch (IllegalArgumentException ex) {
+      reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+      return;
+    }
+    int pos = 0;
+    int length = text.length();
+    while (pos < length) {
+      int end = text.indexOf('\n', pos);
+      if (end < 0) {
+        end = length;
+      }
+      int lineEnd = end > pos && text.charAt(end - 1) == '\r' ? end - 1 : end;
+      console.append(text.substring(pos, lineEnd));
+      pos = end + 1;
+    }
+  }
+
+  @Override public void flush() {
+    /* the console is flushed by its own timer */
+  }
+
+  @Override public void close() {
+    /* nothing to release */
+  }
+}
@@ -5,8 +5,15 @@
 package example;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -23,6 +30,7 @@ import javax.swing.tree.TreePath;
 public final class MainPanel extends JPanel {
   private final JTextField field = new JTextField("foo");
   private final JTree tree = new JTree();
+  private final TreeFilter filter = new TreeFilter(tree);
 
   private MainPanel() {
     super(new BorderLayout(5, 5));
@@ -53,8 +61,6 @@ public final class MainPanel extends JPanel {
         .map(DefaultMutableTreeNode.class::cast)
         .forEach(node -> node.setUserObject(new FilterableNode(Objects.toString(node.getUserObject(), ""))));
 
-    model.addTreeModelListener(new FilterableStatusUpdateListener());
-
     tree.setCellRenderer(new FilterTreeCellRenderer());
     fireDocumentChangeEvent();
 
@@ -65,16 +71,16 @@ public final class MainPanel extends JPanel {
   }
 
   protected void fireDocumentChangeEvent() {
-    String q = field.getText();
-    TreePath rtp = tree.getPathForRow(0);
-    if (q.isEmpty()) {
-      TreeUtil.resetAll(rtp, true);
-      ((DefaultTreeModel) tree.getModel()).reload();
-      // TreeUtil.visitAll(tree, rtp, true);
-    } else {
-      TreeUtil.visitAll(tree, rtp, false);
-      TreeUtil.searchTree(tree, rtp, q);
-    }
+    filter.filter(field.getText());
+    // String q = field.getText();
+    // TreePath rtp = tree.getPathForRow(0);
+    // if (q.isEmpty()) {
+    //   TreeUtil.resetAll(rtp, true);
+    //   ((DefaultTreeModel) tree.getModel()).reload();
+    // } else {
+    //   TreeUtil.visitAll(tree, rtp, false);
+    //   TreeUtil.searchTree(tree, rtp, q);
+    // }
   }
 
   public static void main(String[] args) {
@@ -116,140 +122,279 @@ class FilterableNode {
   }
 }
 
-class FilterableStatusUpdateListener implements TreeModelListener {
+class FilterTreeCellRenderer extends DefaultTreeCellRenderer {
+  private final JLabel emptyLabel = new JLabel();
+
+  @Override public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
+    Component c = super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+    DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
+    FilterableNode uo = (FilterableNode) node.getUserObject();
+    return uo.status ? c : emptyLabel;
+  }
+}
+
+// Filters a JTree by a case-insensitive label prefix.
+// The tree is indexed once into flat arrays in preorder (lowercase label,
+// parent, index in parent), so a node's subtree and ancestors can be resolved
+// with linear passes instead of recursive walks over the TreeNodes.
+// A query that only extends the previous one narrows the previous matches.
+// A node is shown if it matches, lies below a match or has a match below it.
+class TreeFilter {
+  private static final int MAX_CHANGE_EVENTS = 32;
+  private final JTree tree;
+  private DefaultMutableTreeNode[] nodes;
+  private String[] labels;
+  private int[] parents;
+  private int[] childIndexes;
+  private boolean[] visible;
+  private Map<TreeNode, Integer> ids;
+  private String lastQuery;
+  private int[] lastMatches;
+  private int lastMatchCount;
   private boolean adjusting;
 
-  @Override public void treeNodesChanged(TreeModelEvent e) {
-    if (adjusting) {
-      return;
-    }
-    adjusting = true;
-    Object[] children = e.getChildren();
-    DefaultTreeModel model = (DefaultTreeModel) e.getSource();
-
-    DefaultMutableTreeNode node;
-    FilterableNode c;
-    if (Objects.nonNull(children) && children.length == 1) {
-      node = (DefaultMutableTreeNode) children[0];
-      c = (FilterableNode) node.getUserObject();
-      TreePath parent = e.getTreePath();
-      DefaultMutableTreeNode n = (DefaultMutableTreeNode) parent.getLastPathComponent();
-      while (Objects.nonNull(n)) {
-        updateParentUserObject(n);
-        DefaultMutableTreeNode tmp = (DefaultMutableTreeNode) n.getParent();
-        if (Objects.nonNull(tmp)) {
-          n = tmp;
-        } else {
-          break;
-        }
+  protected TreeFilter(JTree tree) {
+    this.tree = tree;
+    tree.getModel().addTreeModelListener(new TreeModelListener() {
+      @Override public void treeNodesChanged(TreeModelEvent e) {
+        invalidate();
       }
-      model.nodeChanged(n);
-    } else {
-      node = (DefaultMutableTreeNode) model.getRoot();
-      c = (FilterableNode) node.getUserObject();
+
+      @Override public void treeNodesInserted(TreeModelEvent e) {
+        invalidate();
+      }
+
+      @Override public void treeNodesRemoved(TreeModelEvent e) {
+        invalidate();
+      }
+
+      @Override public void treeStructureChanged(TreeModelEvent e) {
+        invalidate();
+      }
+    });
+  }
+
+  private void invalidate() {
+    if (!adjusting) {
+      nodes = null;
     }
-    updateAllChildrenUserObject(node, c.status);
-    model.nodeChanged(node);
-    adjusting = false;
   }
 
-  private void updateParentUserObject(DefaultMutableTreeNode parent) {
-    FilterableNode uo = (FilterableNode) parent.getUserObject();
-    // Java 9: Enumeration<TreeNode> children = parent.children();
-    Enumeration<?> children = parent.children();
-    while (children.hasMoreElements()) {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) children.nextElement();
-      FilterableNode check = (FilterableNode) node.getUserObject();
-      if (check.status) {
-        uo.status = true;
-        return;
+  private void buildIndex() {
+    DefaultMutableTreeNode root = (DefaultMutableTreeNode) tree.getModel().getRoot();
+    List<DefaultMutableTreeNode> list = new ArrayList<>();
+    ids = new IdentityHashMap<>();
+    IntList parentList = new IntList();
+    IntList indexList = new IntList();
+    IntList childCounts = new IntList();
+    Enumeration<?> e = root.preorderEnumeration();
+    while (e.hasMoreElements()) {
+      DefaultMutableTreeNode node = (DefaultMutableTreeNode) e.nextElement();
+      int id = list.size();
+      list.add(node);
+      ids.put(node, id);
+      childCounts.add(0);
+      Integer parent = ids.get(node.getParent());
+      if (Objects.isNull(parent)) {
+        parentList.add(-1);
+        indexList.add(-1);
+      } else {
+        // preorder visits the children of a parent in order
+        parentList.add(parent);
+        indexList.add(childCounts.get(parent));
+        childCounts.set(parent, childCounts.get(parent) + 1);
       }
     }
-    uo.status = false;
+    int size = list.size();
+    nodes = list.toArray(new DefaultMutableTreeNode[0]);
+    parents = parentList.toArray();
+    childIndexes = indexList.toArray();
+    labels = new String[size];
+    visible = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      labels[i] = nodes[i].toString().toLowerCase(Locale.ENGLISH);
+      visible[i] = ((FilterableNode) nodes[i].getUserObject()).status;
+    }
+    lastQuery = null;
+    lastMatches = null;
   }
 
-  private void updateAllChildrenUserObject(DefaultMutableTreeNode root, boolean match) {
-    Enumeration<?> breadth = root.breadthFirstEnumeration();
-    while (breadth.hasMoreElements()) {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) breadth.nextElement();
-      if (Objects.equals(root, node)) {
-        continue;
+  private TreePath getPath(int id) {
+    return new TreePath(nodes[id].getPath());
+  }
+
+  // The user may expand or collapse nodes between two queries, so the
+  // expansion state is read from the tree instead of being cached.
+  // JTree#getExpandedDescendants(...) only walks the expanded paths.
+  private boolean[] getExpandedState() {
+    boolean[] expanded = new boolean[nodes.length];
+    TreePath rootPath = getPath(0);
+    Enumeration<TreePath> e = tree.getExpandedDescendants(rootPath);
+    if (Objects.nonNull(e)) {
+      expanded[0] = true;
+      while (e.hasMoreElements()) {
+        Integer id = ids.get((TreeNode) e.nextElement().getLastPathComponent());
+        if (Objects.nonNull(id)) {
+          expanded[id] = true;
+        }
       }
-      FilterableNode uo = (FilterableNode) node.getUserObject();
-      uo.status = match;
     }
+    return expanded;
   }
 
-  @Override public void treeNodesInserted(TreeModelEvent e) {
-    /* not needed */
-  }
+  public void filter(String query) {
+    if (Objects.isNull(nodes)) {
+      buildIndex();
+    }
+    int size = nodes.length;
+    String q = query.toLowerCase(Locale.ENGLISH);
+    if (q.isEmpty()) {
+      for (int i = 0; i < size; i++) {
+        ((FilterableNode) nodes[i].getUserObject()).status = true;
+        visible[i] = true;
+      }
+      adjusting = true;
+      ((DefaultTreeModel) tree.getModel()).reload();
+      adjusting = false;
+      lastQuery = null;
+      lastMatches = null;
+      return;
+    }
 
-  @Override public void treeNodesRemoved(TreeModelEvent e) {
-    /* not needed */
+    boolean narrowing = Objects.nonNull(lastQuery) && q.startsWith(lastQuery);
+    int candidates = narrowing ? lastMatchCount : size;
+    int[] matches = new int[candidates];
+    int matchCount = 0;
+    boolean[] match = new boolean[size];
+    for (int c = 0; c < candidates; c++) {
+      int id = narrowing ? lastMatches[c] : c;
+      if (labels[id].startsWith(q)) {
+        matches[matchCount++] = id;
+        match[id] = true;
+      }
+    }
+    lastQuery = q;
+    lastMatches = matches;
+    lastMatchCount = matchCount;
+
+    // post-order (reverse preorder): mark the ancestors of matches
+    boolean[] show = new boolean[size];
+    for (int i = size - 1; i > 0; i--) {
+      if (match[i] || show[i]) {
+        show[parents[i]] = true;
+      }
+    }
+    // preorder: everything below a match is shown as well
+    boolean[] inMatch = new boolean[size];
+    for (int i = 1; i < size; i++) {
+      int p = parents[i];
+      inMatch[i] = match[p] || inMatch[p];
+    }
+    // a matching folder is opened, a matching leaf opens its parent
+    boolean[] open = new boolean[size];
+    for (int m = 0; m < matchCount; m++) {
+      int id = matches[m];
+      int e = nodes[id].isLeaf() ? parents[id] : id;
+      if (e >= 0) {
+        open[e] = true;
+      }
+    }
+    for (int i = size - 1; i > 0; i--) {
+      if (open[i]) {
+        open[parents[i]] = true;
+      }
+    }
+    apply(match, show, inMatch, open);
   }
 
-  @Override public void treeStructureChanged(TreeModelEvent e) {
-    /* not needed */
+  private void apply(boolean[] match, boolean[] show, boolean[] inMatch, boolean[] open) {
+    int size = nodes.length;
+    IntList changed = new IntList();
+    for (int i = 0; i < size; i++) {
+      boolean v = match[i] || show[i] || inMatch[i];
+      if (v != visible[i]) {
+        visible[i] = v;
+        ((FilterableNode) nodes[i].getUserObject()).status = v;
+        changed.add(i);
+      }
+    }
+    boolean[] expanded = getExpandedState();
+    int toggles = 0;
+    for (int i = 0; i < size; i++) {
+      if (open[i] != expanded[i]) {
+        toggles++;
+      }
+    }
+    DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+    Map<Integer, IntList> byParent = new LinkedHashMap<>();
+    for (int c = 0; c < changed.size(); c++) {
+      int id = changed.get(c);
+      byParent.computeIfAbsent(parents[id], k -> new IntList()).add(childIndexes[id]);
+    }
+    adjusting = true;
+    if (toggles > MAX_CHANGE_EVENTS || byParent.size() > MAX_CHANGE_EVENTS) {
+      // A large batch is applied with a single treeStructureChanged event:
+      // it collapses every node below the root and makes the UI re-measure
+      // all rows once, then the open nodes are expanded in preorder, so
+      // each of them is expanded by exactly one event.
+      model.reload();
+      if (!open[0]) {
+        tree.collapsePath(getPath(0));
+      }
+      for (int i = 1; i < size; i++) {
+        if (open[i]) {
+          tree.expandPath(getPath(i));
+        }
+      }
+    } else {
+      // collapse the deepest paths first, so an ancestor does not keep them open
+      for (int i = size - 1; i >= 0; i--) {
+        if (expanded[i] && !open[i]) {
+          tree.collapsePath(getPath(i));
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        if (open[i] && !expanded[i]) {
+          tree.expandPath(getPath(i));
+        }
+      }
+      // re-measure the rows whose visibility changed, one event per parent
+      byParent.forEach((p, indexes) -> {
+        if (p < 0) {
+          model.nodeChanged(nodes[0]);
+        } else {
+          model.nodesChanged(nodes[p], indexes.toArray());
+        }
+      });
+    }
+    adjusting = false;
   }
 }
 
-class FilterTreeCellRenderer extends DefaultTreeCellRenderer {
-  private final JLabel emptyLabel = new JLabel();
+class IntList {
+  private int[] values = new int[16];
+  private int size;
 
-  @Override public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
-    Component c = super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
-    DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
-    FilterableNode uo = (FilterableNode) node.getUserObject();
-    return uo.status ? c : emptyLabel;
+  public void add(int v) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = v;
   }
-}
 
-final class TreeUtil {
-  private TreeUtil() {
-    /* Singleton */
+  public int get(int i) {
+    return values[i];
   }
 
-  public static void searchTree(JTree tree, TreePath path, String q) {
-    Object o = path.getLastPathComponent();
-    if (o instanceof DefaultMutableTreeNode) {
-      DefaultMutableTreeNode node = (DefaultMutableTreeNode) o;
-      FilterableNode uo = (FilterableNode) node.getUserObject();
-      uo.status = node.toString().startsWith(q);
-      ((DefaultTreeModel) tree.getModel()).nodeChanged(node);
-      if (uo.status) {
-        tree.expandPath(node.isLeaf() ? path.getParentPath() : path);
-      }
-      if (!uo.status && !node.isLeaf()) {
-        // Java 9: return Collections.list(node.children()).stream()
-        Collections.list((Enumeration<?>) node.children()).stream()
-            .filter(TreeNode.class::isInstance).map(TreeNode.class::cast)
-            .forEach(n -> searchTree(tree, path.pathByAddingChild(n), q));
-      }
-    }
+  public void set(int i, int v) {
+    values[i] = v;
   }
 
-  public static void resetAll(TreePath parent, boolean match) {
-    DefaultMutableTreeNode node = (DefaultMutableTreeNode) parent.getLastPathComponent();
-    FilterableNode uo = (FilterableNode) node.getUserObject();
-    uo.status = match;
-    if (!node.isLeaf()) {
-      // Java 9: Collections.list(node.children())
-      Collections.list((Enumeration<?>) node.children())
-          .forEach(n -> resetAll(parent.pathByAddingChild(n), match));
-    }
+  public int size() {
+    return size;
   }
 
-  public static void visitAll(JTree tree, TreePath parent, boolean expand) {
-    TreeNode node = (TreeNode) parent.getLastPathComponent();
-    if (!node.isLeaf()) {
-      // Java 9: Collections.list(node.children())
-      Collections.list((Enumeration<?>) node.children())
-          .forEach(n -> visitAll(tree, parent.pathByAddingChild(n), expand));
-    }
-    if (expand) {
-      tree.expandPath(parent);
-    } else {
-      tree.collapsePath(parent);
-    }
+  public int[] toArray() {
+    return Arrays.copyOf(values, size);
   }
 }
@@ -8,17 +8,35 @@ import java.awt.*;
 import java.awt.event.HierarchyEvent;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumn;
@@ -26,18 +44,37 @@ import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 
 public final class MainPanel extends JPanel {
+  private static final WatchEvent.Kind<?>[] KINDS = {
+    StandardWatchEventKinds.ENTRY_CREATE,
+    StandardWatchEventKinds.ENTRY_DELETE,
+    StandardWatchEventKinds.ENTRY_MODIFY
+  };
   private final JTextArea logger = new JTextArea();
   private final FileModel model = new FileModel();
   private final transient TableRowSorter<? extends TableModel> sorter = new TableRowSorter<>(model);
   private final Set<Integer> deleteRowSet = new TreeSet<>();
-
-  private MainPanel() {
+  private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+  public static final long DEFAULT_COALESCE_WINDOW = 200L;
+  // Events for the same path within this window (in milliseconds) are merged
+  // and applied to the table as one batch.
+  private final long coalesceWindow;
+  // true: the subdirectories are watched too
+  private final boolean recursive;
+
+  private MainPanel(long coalesceWindow, boolean recursive) {
     super(new BorderLayout());
+    this.coalesceWindow = Math.max(0L, coalesceWindow);
+    this.recursive = recursive;
 
     JTable table = new JTable(model);
     table.setRowSorter(sorter);
     table.setFillsViewportHeight(true);
     table.setComponentPopupMenu(new TablePopupMenu());
+    sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
+      @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+        return !isDeleteRow(entry.getIdentifier());
+      }
+    });
 
     TableColumn col = table.getColumnModel().getColumn(0);
     col.setMinWidth(30);
@@ -48,8 +85,8 @@ public final class MainPanel extends JPanel {
     SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
     Thread worker = new Thread(() -> {
       try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
-        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
-        append("register: " + dir);
+        register(dir, watcher, null);
+        EventQueue.invokeLater(() -> append(String.format("register: %s (recursive: %b, window: %dms)", dir, recursive, coalesceWindow)));
         processEvents(dir, watcher);
         loop.exit();
       } catch (IOException ex) {
@@ -91,72 +128,152 @@ public final class MainPanel extends JPanel {
     setPreferredSize(new Dimension(320, 240));
   }
 
+  // Registers the directory, and all its subdirectories if recursive is true.
+  // The entries that already exist in a subdirectory created after the
+  // watch started are reported to the buffer as created.
+  private void register(Path dir, WatchService watcher, PathEventBuffer buffer) throws IOException {
+    if (!recursive) {
+      keys.put(dir.register(watcher, KINDS), dir);
+      return;
+    }
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+        keys.put(d.register(watcher, KINDS), d);
+        if (Objects.nonNull(buffer) && !d.equals(dir)) {
+          buffer.put(StandardWatchEventKinds.ENTRY_CREATE, d);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (Objects.nonNull(buffer)) {
+          buffer.put(StandardWatchEventKinds.ENTRY_CREATE, file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override public FileVisitResult visitFileFailed(Path file, IOException ex) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
   // Watching a Directory for Changes (The Java™ Tutorials > Essential Classes > Basic I/O)
   // https://docs.oracle.com/javase/tutorial/essential/io/notification.html
   // Process all events for keys queued to the watcher
   public void processEvents(Path dir, WatchService watcher) {
+    PathEventBuffer buffer = new PathEventBuffer();
+    long deadline = 0L;
     for (;;) {
-      // wait for key to be signaled
+      // wait for key to be signaled, or for the coalescing window to close
       WatchKey key;
       try {
-        key = watcher.take();
+        if (buffer.isEmpty()) {
+          key = watcher.take();
+          deadline = System.currentTimeMillis() + coalesceWindow;
+        } else {
+          key = watcher.poll(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
       } catch (InterruptedException ex) {
         EventQueue.invokeLater(() -> append("Interrupted"));
         Thread.currentThread().interrupt();
         return;
       }
 
-      for (WatchEvent<?> event: key.pollEvents()) {
-        WatchEvent.Kind<?> kind = event.kind();
-
-        // This key is registered only for ENTRY_CREATE events,
-        // but an OVERFLOW event can occur regardless if events
-        // are lost or discarded.
-        if (kind == StandardWatchEventKinds.OVERFLOW) {
-          continue;
+      if (Objects.nonNull(key)) {
+        Path keyDir = keys.getOrDefault(key, dir);
+        for (WatchEvent<?> event: key.pollEvents()) {
+          WatchEvent.Kind<?> kind = event.kind();
+
+          // An OVERFLOW event can occur regardless if events are lost or
+          // discarded, so list the directory again and let the table catch up.
+          if (kind == StandardWatchEventKinds.OVERFLOW) {
+            buffer.rescan(keyDir, listDirectory(keyDir));
+            continue;
+          }
+
+          // The filename is the context of the event.
+          @SuppressWarnings("unchecked")
+          WatchEvent<Path> ev = (WatchEvent<Path>) event;
+          Path child = keyDir.resolve(ev.context());
+          buffer.put(kind, child);
+          if (recursive && kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+              register(child, watcher, buffer);
+            } catch (IOException ex) {
+              buffer.log(String.format("register failed: %s", child));
+            }
+          }
         }
 
-        // The filename is the context of the event.
-        @SuppressWarnings("unchecked")
-        WatchEvent<Path> ev = (WatchEvent<Path>) event;
-        Path filename = ev.context();
-
-        Path child = dir.resolve(filename);
-        EventQueue.invokeLater(() -> {
-          append(String.format("%s: %s", kind, child));
-          updateTable(kind, child);
-        });
+        // Reset the key -- this step is critical if you want to
+        // receive further watch events.  If the key is no longer valid,
+        // the directory is inaccessible so stop watching it.
+        boolean valid = key.reset();
+        if (!valid) {
+          keys.remove(key);
+          if (keys.isEmpty()) {
+            break;
+          }
+        }
       }
 
-      // Reset the key -- this step is critical if you want to
-      // receive further watch events.  If the key is no longer valid,
-      // the directory is inaccessible so exit the loop.
-      boolean valid = key.reset();
-      if (!valid) {
-        break;
+      if (!buffer.isEmpty() && System.currentTimeMillis() >= deadline) {
+        PathEventBuffer batch = buffer;
+        buffer = new PathEventBuffer();
+        EventQueue.invokeLater(() -> updateTable(batch));
       }
     }
   }
 
-  public void updateTable(WatchEvent.Kind<?> kind, Path child) {
-    if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-      model.addPath(child);
-    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-      for (int i = 0; i < model.getRowCount(); i++) {
-        Object value = model.getValueAt(i, 2);
-        String path = Objects.toString(value, "");
-        if (path.equals(child.toString())) {
-          deleteRowSet.add(i);
-          // model.removeRow(i);
-          break;
-        }
+  private static Set<Path> listDirectory(Path dir) {
+    Set<Path> set = new HashSet<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      stream.forEach(set::add);
+    } catch (IOException ex) {
+      // the directory has been removed, every row in it is stale
+      return set;
+    }
+    return set;
+  }
+
+  public void updateTable(PathEventBuffer batch) {
+    batch.getMessages().forEach(this::append);
+    Set<Path> created = new LinkedHashSet<>();
+    boolean deleted = false;
+    for (Map.Entry<Path, WatchEvent.Kind<?>> e: batch.getEvents().entrySet()) {
+      Path path = e.getKey().toAbsolutePath();
+      WatchEvent.Kind<?> kind = e.getValue();
+      int row = model.indexOf(path);
+      if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+        deleted |= row >= 0 && markDeleted(path, row);
+      } else if (kind == StandardWatchEventKinds.ENTRY_CREATE && row < 0) {
+        created.add(path);
       }
-      sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
-        @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
-          return !isDeleteRow(entry.getIdentifier());
+    }
+    Map<Path, Set<Path>> rescans = new HashMap<>();
+    batch.getRescans().forEach((dir, listing) -> rescans.put(dir.toAbsolutePath(), listing));
+    if (!rescans.isEmpty()) {
+      // one pass over a single copy of the rows for all the rescanned directories
+      for (Path path: model.getPaths()) {
+        Set<Path> listing = rescans.get(path.getParent());
+        if (Objects.nonNull(listing) && !listing.contains(path)) {
+          deleted |= markDeleted(path, model.indexOf(path));
         }
-      });
+      }
+      for (Set<Path> listing: rescans.values()) {
+        listing.stream().map(Path::toAbsolutePath).filter(p -> model.indexOf(p) < 0).forEach(created::add);
+      }
     }
+    model.addPaths(created);
+    if (deleted) {
+      sorter.allRowsChanged();
+    }
+  }
+
+  private boolean markDeleted(Path path, int row) {
+    model.removeIndex(path);
+    return deleteRowSet.add(row);
   }
 
   public boolean isDeleteRow(int row) {
@@ -181,7 +298,10 @@ public final class MainPanel extends JPanel {
     JFrame frame = new JFrame("@title@");
     frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
     // frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-    frame.getContentPane().add(new MainPanel());
+    // e.g. java -Dexample.coalesceWindow=500 -Dexample.recursive=false example.MainPanel
+    long window = Long.getLong("example.coalesceWindow", DEFAULT_COALESCE_WINDOW);
+    boolean recursive = Boolean.parseBoolean(System.getProperty("example.recursive", "true"));
+    frame.getContentPane().add(new MainPanel(window, recursive));
     frame.pack();
     frame.setLocationRelativeTo(null);
     frame.setVisible(true);
@@ -196,10 +316,38 @@ class FileModel extends DefaultTableModel {
   };
   private int number;
 
+  private final Map<Path, Integer> rowIndexes = new HashMap<>();
+
   public void addPath(Path path) {
-    Object[] obj = {number, path.getFileName(), path.toAbsolutePath()};
-    super.addRow(obj);
-    number++;
+    addPaths(Collections.singletonList(path));
+  }
+
+  // Appends all the rows and fires a single TableModelEvent.
+  @SuppressWarnings("unchecked")
+  public void addPaths(Collection<Path> paths) {
+    if (paths.isEmpty()) {
+      return;
+    }
+    int firstRow = getRowCount();
+    for (Path path: paths) {
+      Path absolutePath = path.toAbsolutePath();
+      rowIndexes.put(absolutePath, getRowCount());
+      getDataVector().add(new Vector<>(Arrays.asList(number, path.getFileName(), absolutePath)));
+      number++;
+    }
+    fireTableRowsInserted(firstRow, getRowCount() - 1);
+  }
+
+  public int indexOf(Path absolutePath) {
+    return rowIndexes.getOrDefault(absolutePath, -1);
+  }
+
+  public void removeIndex(Path absolutePath) {
+    rowIndexes.remove(absolutePath);
+  }
+
+  public Set<Path> getPaths() {
+    return new HashSet<>(rowIndexes.keySet());
   }
 
   @Override public boolean isCellEditable(int row, int col) {
@@ -231,6 +379,57 @@ class FileModel extends DefaultTableModel {
   }
 }
 
+// Keeps only the latest kind of event per path, a modification of a created
+// file is still a creation.
+class PathEventBuffer {
+  private static final int MAX_MESSAGES = 20;
+  private final Map<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+  private final Map<Path, Set<Path>> rescans = new LinkedHashMap<>();
+  private final List<String> messages = new ArrayList<>();
+  private int eventCount;
+
+  public void put(WatchEvent.Kind<?> kind, Path path) {
+    eventCount++;
+    log(String.format("%s: %s", kind, path));
+    WatchEvent.Kind<?> prev = events.get(path);
+    if (kind == StandardWatchEventKinds.ENTRY_MODIFY && Objects.nonNull(prev)) {
+      return;
+    }
+    events.put(path, kind);
+  }
+
+  public void rescan(Path dir, Set<Path> listing) {
+    log(String.format("%s: %s", StandardWatchEventKinds.OVERFLOW, dir));
+    rescans.put(dir, listing);
+  }
+
+  public void log(String message) {
+    if (messages.size() < MAX_MESSAGES) {
+      messages.add(message);
+    }
+  }
+
+  public boolean isEmpty() {
+    return events.isEmpty() && rescans.isEmpty();
+  }
+
+  public Map<Path, WatchEvent.Kind<?>> getEvents() {
+    return events;
+  }
+
+  public Map<Path, Set<Path>> getRescans() {
+    return rescans;
+  }
+
+  public List<String> getMessages() {
+    List<String> list = new ArrayList<>(messages);
+    if (eventCount > messages.size()) {
+      list.add(String.format("... %d events for %d paths", eventCount, events.size()));
+    }
+    return list;
+  }
+}
+
 class TablePopupMenu extends JPopupMenu {
   private final JMenuItem delete;
 
@@ -5,6 +5,10 @@
 package example;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
@@ -12,45 +16,56 @@ public final class MainPanel extends JPanel {
 
   private MainPanel() {
     super(new BorderLayout());
-    Timer animator = new Timer(5, null);
+    // Timer animator = new Timer(5, null);
     ImageIcon icon = new ImageIcon(getClass().getResource("test.png"));
+    AtomicInteger ww = new AtomicInteger();
     Component wipe = new JComponent() {
-      private int ww;
       @Override protected void paintComponent(Graphics g) {
         g.setColor(getBackground());
         g.fillRect(0, 0, getWidth(), getHeight());
-        if (getWipeMode() == Wipe.IN) {
-          if (ww < icon.getIconWidth()) {
-            ww += 10;
-          } else {
-            animator.stop();
-          }
-        } else { // Wipe.OUT:
-          if (ww > 0) {
-            ww -= 10;
-          } else {
-            animator.stop();
-          }
-        }
+        // if (getWipeMode() == Wipe.IN) {
+        //   if (ww < icon.getIconWidth()) {
+        //     ww += 10;
+        //   } else {
+        //     animator.stop();
+        //   }
+        // } else { // Wipe.OUT:
+        //   if (ww > 0) {
+        //     ww -= 10;
+        //   } else {
+        //     animator.stop();
+        //   }
+        // }
         int iw = icon.getIconWidth();
         int ih = icon.getIconHeight();
         g.drawImage(icon.getImage(), 0, 0, iw, ih, this);
-        g.fillRect(ww, 0, iw, ih);
+        g.fillRect(ww.get(), 0, iw, ih);
       }
     };
     wipe.setBackground(Color.BLACK);
-    animator.addActionListener(e -> wipe.repaint());
+    // animator.addActionListener(e -> wipe.repaint());
+    // the wipe is now stepped by the clock, 10px per 5ms as before, instead of on every paint
+    AnimationClock clock = AnimationClock.getInstance();
+    AnimationClock.Animation animation = steps -> {
+      int iw = icon.getIconWidth();
+      int w = getWipeMode() == Wipe.IN ? Math.min(iw, ww.get() + 10 * steps) : Math.max(0, ww.get() - 10 * steps);
+      ww.set(w);
+      clock.repaint(wipe);
+      return w > 0 && w < iw;
+    };
 
     JButton button1 = new JButton("Wipe In");
     button1.addActionListener(e -> {
       setWipeMode(Wipe.IN);
-      animator.start();
+      // animator.start();
+      clock.start(wipe, 5, animation);
     });
 
     JButton button2 = new JButton("Wipe Out");
     button2.addActionListener(e -> {
       setWipeMode(Wipe.OUT);
-      animator.start();
+      // animator.start();
+      clock.start(wipe, 5, animation);
     });
 
     add(wipe);
@@ -58,7 +73,8 @@ public final class MainPanel extends JPanel {
     add(button2, BorderLayout.NORTH);
     setOpaque(false);
     setPreferredSize(new Dimension(320, 240));
-    animator.start();
+    // animator.start();
+    clock.start(wipe, 5, animation);
   }
 
   public void setWipeMode(Wipe wipeMode) {
@@ -92,3 +108,104 @@ public final class MainPanel extends JPanel {
 enum Wipe {
   IN, OUT
 }
+
+// One javax.swing.Timer drives every animation: each frame steps the
+// animations whose period has elapsed, then flushes the repaint regions
+// they reported, one repaint per component. An animation whose component
+// is not showing is paused and resumes where it was.
+final class AnimationClock {
+  public static final int FRAME_MILLIS = 16;
+  private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+  private static final AnimationClock INSTANCE = new AnimationClock();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> tick());
+  private final Map<Component, Entry> animations = new LinkedHashMap<>();
+  private final Map<Component, Rectangle> dirtyRegions = new LinkedHashMap<>();
+  private long frameCount;
+  private long overBudgetCount;
+  private long lastFrameNanos;
+  private long maxFrameNanos;
+
+  @FunctionalInterface
+  public interface Animation {
+    // steps: the number of periods elapsed since the previous call,
+    // returns false when the animation is finished
+    boolean step(int steps);
+  }
+
+  private static final class Entry {
+    protected final Animation animation;
+    protected final long periodNanos;
+    protected long last;
+
+    protected Entry(Animation animation, long periodNanos, long last) {
+      this.animation = animation;
+      this.periodNanos = periodNanos;
+      this.last = last;
+    }
+  }
+
+  private AnimationClock() {
+    /* Singleton */
+  }
+
+  public static AnimationClock getInstance() {
+    return INSTANCE;
+  }
+
+  // Replaces the animation of the component, if any.
+  public void start(Component c, int periodMillis, Animation animation) {
+    animations.put(c, new Entry(animation, periodMillis * 1_000_000L, System.nanoTime()));
+    timer.start();
+  }
+
+  public void stop(Component c) {
+    animations.remove(c);
+  }
+
+  public boolean isRunning(Component c) {
+    return animations.containsKey(c);
+  }
+
+  public void repaint(Component c) {
+    repaint(c, new Rectangle(c.getWidth(), c.getHeight()));
+  }
+
+  public void repaint(Component c, Rectangle r) {
+    dirtyRegions.merge(c, new Rectangle(r), Rectangle::union);
+  }
+
+  public String getFrameStats() {
+    return String.format("frames: %d, last: %d%%, max: %d%% of %dms, over budget: %d",
+        frameCount, lastFrameNanos * 100 / FRAME_NANOS, maxFrameNanos * 100 / FRAME_NANOS, FRAME_MILLIS, overBudgetCount);
+  }
+
+  private void tick() {
+    long now = System.nanoTime();
+    for (Map.Entry<Component, Entry> me: new ArrayList<>(animations.entrySet())) {
+      Component c = me.getKey();
+      Entry e = me.getValue();
+      if (!c.isShowing()) {
+        e.last = now;
+        continue;
+      }
+      long steps = (now - e.last) / e.periodNanos;
+      if (steps > 0) {
+        e.last += steps * e.periodNanos;
+        if (!e.animation.step((int) Math.min(steps, Integer.MAX_VALUE))) {
+          animations.remove(c, e);
+        }
+      }
+    }
+    dirtyRegions.forEach((c, r) -> c.repaint(r.x, r.y, r.width, r.height));
+    dirtyRegions.clear();
+    if (animations.isEmpty()) {
+      timer.stop();
+    }
+    lastFrameNanos = System.nanoTime() - now;
+    maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+    frameCount++;
+    if (lastFrameNanos > FRAME_NANOS) {
+      overBudgetCount++;
+    }
+  }
+}
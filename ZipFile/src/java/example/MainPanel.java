@@ -5,49 +5,111 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.ItemEvent;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.Enumeration;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.logging.StreamHandler;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipException;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   public static final String LOGGER_NAME = MethodHandles.lookup().lookupClass().getName();
   private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+  private static final int MAX_LINES = 10_000;
 
   private MainPanel() {
     super(new BorderLayout());
     LOGGER.setUseParentHandlers(false);
-    JTextArea textArea = new JTextArea();
-    textArea.setEditable(false);
-    LOGGER.addHandler(new TextAreaHandler(new TextAreaOutputStream(textArea)));
+    LogConsole console = new LogConsole(MAX_LINES);
+    LogConsoleHandler handler = new LogConsoleHandler(console);
+    handler.setLevel(Level.ALL);
+    LOGGER.addHandler(handler);
+
+    JComboBox<Level> logLevel = new JComboBox<>(new Level[] {Level.WARNING, Level.INFO, Level.FINE});
+    logLevel.setSelectedItem(Level.INFO);
+    LOGGER.setLevel(Level.INFO);
+    logLevel.addItemListener(e -> {
+      if (e.getStateChange() == ItemEvent.SELECTED) {
+        LOGGER.setLevel((Level) e.getItem());
+      }
+    });
+    JComboBox<Integer> compressionLevel = new JComboBox<>(new Integer[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+    compressionLevel.setSelectedItem(6);
+
+    JPanel options = new JPanel(new FlowLayout(FlowLayout.LEADING));
+    options.add(new JLabel("Compression level:"));
+    options.add(compressionLevel);
+    options.add(new JLabel("Log level:"));
+    options.add(logLevel);
 
     JPanel p = new JPanel(new GridLayout(2, 1, 10, 10));
-    p.add(makeZipPanel());
+    p.add(makeZipPanel(compressionLevel));
     p.add(makeUnzipPanel());
-    add(p, BorderLayout.NORTH);
-    add(new JScrollPane(textArea));
+    JPanel north = new JPanel(new BorderLayout());
+    north.add(options, BorderLayout.NORTH);
+    north.add(p);
+    add(north, BorderLayout.NORTH);
+    add(new JScrollPane(console));
+    add(makeBenchmarkButton(compressionLevel), BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
-  private static Component makeZipPanel() {
+  private static Component makeZipPanel(JComboBox<Integer> compressionLevel) {
     JTextField field = new JTextField(20);
     JButton button = new JButton("select directory");
     button.addActionListener(e -> {
@@ -77,13 +139,8 @@ public final class MainPanel extends JPanel {
           return;
         }
       }
-      try {
-        ZipUtil.zip(path, tgt);
-      } catch (IOException ex) {
-        // ex.printStackTrace();
-        LOGGER.info(() -> String.format("Cant zip! : %s", path));
-        Toolkit.getDefaultToolkit().beep();
-      }
+      int level = compressionLevel.getItemAt(compressionLevel.getSelectedIndex());
+      execute(button1, () -> ZipUtil.zip(path, tgt, level), String.format("Cant zip! : %s", path));
     });
 
     JPanel p = new JPanel(new BorderLayout(5, 2));
@@ -122,7 +179,7 @@ public final class MainPanel extends JPanel {
             LOGGER.info(() -> String.format("mkdir0: %s", destDir));
             Files.createDirectories(destDir);
           }
-          ZipUtil.unzip(path, destDir);
+          execute(button1, () -> ZipUtil.unzip(path, destDir), String.format("Cant unzip! : %s", path));
         } catch (IOException ex) {
           // ex.printStackTrace();
           LOGGER.info(() -> String.format("Cant unzip! : %s", path));
@@ -139,6 +196,56 @@ public final class MainPanel extends JPanel {
     return p;
   }
 
+  private static Component makeBenchmarkButton(JComboBox<Integer> compressionLevel) {
+    JButton button = new JButton("zip/unzip benchmark");
+    button.addActionListener(e -> {
+      button.setEnabled(false);
+      LOGGER.info("running...");
+      new ZipBenchmark(compressionLevel.getItemAt(compressionLevel.getSelectedIndex())) {
+        @Override protected void process(List<String> chunks) {
+          chunks.forEach(LOGGER::info);
+        }
+
+        @Override protected void done() {
+          try {
+            get();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            LOGGER.info(() -> String.format("benchmark failed: %s", ex.getCause()));
+          }
+          button.setEnabled(true);
+        }
+      }.execute();
+    });
+    return button;
+  }
+
+  // Runs the zip or unzip on a worker thread: the EDT has to stay free to
+  // move the log lines of the pool threads into the LogConsole.
+  private static void execute(JButton button, ZipTask task, String error) {
+    button.setEnabled(false);
+    new SwingWorker<Void, Void>() {
+      @Override protected Void doInBackground() throws IOException {
+        task.run();
+        return null;
+      }
+
+      @Override protected void done() {
+        try {
+          get();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          // ex.printStackTrace();
+          LOGGER.info(() -> error);
+          Toolkit.getDefaultToolkit().beep();
+        }
+        button.setEnabled(true);
+      }
+    }.execute();
+  }
+
   private static Optional<Path> makeDestDirPath(String text) {
     Path path = Paths.get(text);
     // if (str.isEmpty() || Files.notExists(path)) { // noticeably poor performance in JDK 8
@@ -173,113 +280,996 @@ public final class MainPanel extends JPanel {
   }
 }
 
+interface ZipTask {
+  void run() throws IOException;
+}
+
+// Zips and unzips two corpora of about 100 MB each, 100k files of 1 KB and
+// 4 files of 25 MB, generated in a temporary directory that is deleted at
+// the end. Each case is warmed up once, then the median of REPEAT runs is
+// reported in MB/s of uncompressed data.
+class ZipBenchmark extends SwingWorker<Void, String> {
+  private static final int REPEAT = 3;
+  private static final int SMALL_COUNT = 100_000;
+  private static final int SMALL_SIZE = 1024;
+  private static final int LARGE_COUNT = 4;
+  private static final int LARGE_SIZE = 25 * 1024 * 1024;
+  private final int level;
+
+  protected ZipBenchmark(int level) {
+    super();
+    this.level = level;
+  }
+
+  @Override protected Void doInBackground() throws IOException {
+    Path tmp = Files.createTempDirectory("zip-benchmark");
+    try {
+      publish(String.format("zip / unzip MB/s, level %d (median of %d)", level, REPEAT));
+      run(tmp, "small", SMALL_COUNT, SMALL_SIZE);
+      run(tmp, "large", LARGE_COUNT, LARGE_SIZE);
+    } finally {
+      delete(tmp);
+    }
+    return null;
+  }
+
+  private void run(Path tmp, String name, int count, int size) throws IOException {
+    Path srcDir = tmp.resolve(name);
+    Path zip = tmp.resolve(name + ".zip");
+    Path destDir = tmp.resolve(name + "-unzip");
+    createCorpus(srcDir, count, size);
+    double mb = count * (double) size / 1024d / 1024d;
+    double zipTime = measure(() -> ZipUtil.zip(srcDir, zip, level), () -> Files.deleteIfExists(zip));
+    double unzipTime = measure(() -> ZipUtil.unzip(zip, destDir), () -> delete(destDir));
+    publish(String.format("%,d x %,d bytes: %.1f / %.1f MB/s", count, size, mb / zipTime, mb / unzipTime));
+    delete(srcDir);
+    delete(destDir);
+    Files.deleteIfExists(zip);
+  }
+
+  // Returns the median time in seconds. The output of the previous run is
+  // removed before every run, and that is not timed.
+  private static double measure(ZipTask task, ZipTask reset) throws IOException {
+    task.run(); // warm up
+    long[] times = new long[REPEAT];
+    for (int i = 0; i < REPEAT; i++) {
+      reset.run();
+      long start = System.nanoTime();
+      task.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[REPEAT / 2] / 1.0e9;
+  }
+
+  // Compressible text: random words from a small vocabulary.
+  private static void createCorpus(Path dir, int count, int size) throws IOException {
+    String[] words = {"swing", "java", "zip", "entry", "deflate", "buffer", "channel", "file", "\n"};
+    Random rnd = new Random(1L);
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < count; i++) {
+      int pos = 0;
+      while (pos < size) {
+        byte[] word = (words[rnd.nextInt(words.length)] + " ").getBytes(StandardCharsets.US_ASCII);
+        int n = Math.min(word.length, size - pos);
+        System.arraycopy(word, 0, bytes, pos, n);
+        pos += n;
+      }
+      // 1000 files per directory
+      Path file = dir.resolve(String.format("%03d/%08d.txt", i / 1000, i));
+      Files.createDirectories(file.getParent());
+      Files.write(file, bytes);
+    }
+  }
+
+  private static void delete(Path dir) throws IOException {
+    if (!dir.toFile().exists()) {
+      return;
+    }
+    try (Stream<Path> s = Files.walk(dir)) {
+      Iterator<Path> it = s.sorted(Comparator.reverseOrder()).iterator();
+      while (it.hasNext()) {
+        Files.delete(it.next());
+      }
+    }
+  }
+}
+
 final class ZipUtil {
   private static final Logger LOGGER = Logger.getLogger(MainPanel.LOGGER_NAME);
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+  // private static final int MAX_PENDING = 4 * THREADS;
+  // The memory that the entries waiting for the writer may hold.
+  private static final long MAX_PENDING_BYTES = 128L * 1024 * 1024;
 
   private ZipUtil() {
     /* HideUtilityClassConstructor */
   }
 
   public static void zip(Path srcDir, Path zip) throws IOException {
+    zip(srcDir, zip, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  // The entries are compressed on a thread pool and written in the order of
+  // Files.walk(...), so the archive is the same as a serial one.
+  public static void zip(Path srcDir, Path zip, int level) throws IOException {
+    long start = System.nanoTime();
+    long bytes = 0L;
+    int count = 0;
+    long pendingBytes = 0L;
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    Deque<PendingEntry> pending = new ArrayDeque<>();
     // try (Stream<Path> s = Files.walk(srcDir).filter(Files::isRegularFile)) { // noticeably poor performance in JDK 8
-    try (Stream<Path> s = Files.walk(srcDir).filter(f -> f.toFile().isFile())) {
-      List<Path> files = s.collect(Collectors.toList());
-      try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
-        for (Path path: files) {
-          String relativePath = srcDir.relativize(path).toString().replace('\\', '/');
-          LOGGER.info(() -> String.format("zip: %s", relativePath));
-          zos.putNextEntry(createZipEntry(relativePath));
-          Files.copy(path, zos);
-          zos.closeEntry();
+    try (Stream<Path> s = Files.walk(srcDir).filter(f -> f.toFile().isFile());
+         ZipChannelWriter writer = new ZipChannelWriter(zip)) {
+      for (Iterator<Path> it = s.iterator(); it.hasNext();) {
+        Path path = it.next();
+        String relativePath = srcDir.relativize(path).toString().replace('\\', '/');
+        long cost = DeflatedEntry.memoryCost(Files.size(path));
+        // if (pending.size() >= MAX_PENDING) {
+        while (!pending.isEmpty() && pendingBytes + cost > MAX_PENDING_BYTES) {
+          PendingEntry head = pending.remove();
+          bytes += writeEntry(writer, head.future);
+          pendingBytes -= head.cost;
+          count++;
         }
+        pending.add(new PendingEntry(executor.submit(() -> DeflatedEntry.deflate(path, relativePath, level)), cost));
+        pendingBytes += cost;
+      }
+      while (!pending.isEmpty()) {
+        bytes += writeEntry(writer, pending.remove().future);
+        count++;
+      }
+    } finally {
+      executor.shutdownNow();
+      deleteTemporaryFiles(executor, pending);
+    }
+    logThroughput("zip", count, bytes, start);
+  }
+
+  private static long writeEntry(ZipChannelWriter writer, Future<DeflatedEntry> future) throws IOException {
+    DeflatedEntry entry = getResult(future);
+    LOGGER.fine(() -> String.format("zip: %s", entry.name));
+    try {
+      writer.write(entry);
+    } finally {
+      entry.deleteTemporaryFile();
+    }
+    return entry.size;
+  }
+
+  // When the zip fails, the entries that were already compressed are never
+  // written, so their temporary files are deleted here. The tasks still
+  // running are waited for, since they may create one after the failure.
+  private static void deleteTemporaryFiles(ExecutorService executor, Collection<PendingEntry> pending) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    for (PendingEntry p: pending) {
+      if (p.future.isDone() && !p.future.isCancelled()) {
+        try {
+          p.future.get().deleteTemporaryFile();
+        } catch (InterruptedException | ExecutionException | IOException ex) {
+          LOGGER.fine(() -> String.format("skip: %s", ex.getMessage()));
+        }
+      }
+    }
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(ex.getMessage());
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
       }
+      throw new IOException(cause);
     }
   }
 
-  private static ZipEntry createZipEntry(String name) {
-    return new ZipEntry(name);
+  private static void logThroughput(String action, int count, long bytes, long start) {
+    double seconds = Math.max(1L, System.nanoTime() - start) / 1.0e9;
+    double mb = bytes / 1024d / 1024d;
+    LOGGER.info(() -> String.format("%s: %d files, %.1f MB in %.2f s (%.1f MB/s)", action, count, mb, seconds, mb / seconds));
   }
 
-  @SuppressWarnings("JdkObsolete")
+  // The central directory is memory-mapped, stored entries are copied with
+  // FileChannel#transferTo(...) and deflated entries are inflated from a mapped
+  // buffer. Independent entries are extracted concurrently.
   public static void unzip(Path zipFilePath, Path destDir) throws IOException {
-    try (ZipFile zipFile = new ZipFile(zipFilePath.toString())) {
-      Enumeration<? extends ZipEntry> e = zipFile.entries();
-      while (e.hasMoreElements()) {
-        ZipEntry zipEntry = e.nextElement();
-        String name = zipEntry.getName();
-        Path path = destDir.resolve(name);
-        if (name.endsWith("/")) { // if (Files.isDirectory(path)) {
-          LOGGER.info(() -> String.format("mkdir1: %s", path));
-          Files.createDirectories(path);
-        } else {
-          Path parent = path.getParent();
-          // if (Objects.nonNull(parent) && Files.notExists(parent)) { // noticeably poor performance in JDK 8
-          if (Objects.nonNull(parent) && !parent.toFile().exists()) {
-            LOGGER.info(() -> String.format("mkdir2: %s", parent));
-            Files.createDirectories(parent);
-          }
-          LOGGER.info(() -> String.format("copy: %s", path));
-          Files.copy(zipFile.getInputStream(zipEntry), path, StandardCopyOption.REPLACE_EXISTING);
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try (ZipChannelReader reader = new ZipChannelReader(zipFilePath)) {
+      Path root = destDir.normalize();
+      List<Future<Long>> futures = new ArrayList<>();
+      Set<Path> dirs = new HashSet<>();
+      for (ZipChannelReader.Entry entry: reader.entries()) {
+        String name = entry.name;
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+          throw new IOException("Bad zip entry: " + name);
+        }
+        Path dir = name.endsWith("/") ? path : path.getParent();
+        // if (Objects.nonNull(parent) && Files.notExists(parent)) { // noticeably poor performance in JDK 8
+        if (Objects.nonNull(dir) && dirs.add(dir) && !dir.toFile().exists()) {
+          LOGGER.fine(() -> String.format("mkdir: %s", dir));
+          Files.createDirectories(dir);
+        }
+        if (!name.endsWith("/")) {
+          futures.add(executor.submit(() -> {
+            LOGGER.fine(() -> String.format("copy: %s", path));
+            reader.extract(entry, path);
+            return entry.size;
+          }));
         }
       }
+      long bytes = 0L;
+      for (Future<Long> f: futures) {
+        bytes += getResult(f);
+      }
+      logThroughput("unzip", futures.size(), bytes, start);
+    } finally {
+      executor.shutdownNow();
     }
   }
 }
 
-class TextAreaOutputStream extends OutputStream {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-  private final JTextArea textArea;
+// A compressed entry waiting for the writer, and the memory it may hold.
+final class PendingEntry {
+  public final Future<DeflatedEntry> future;
+  public final long cost;
 
-  protected TextAreaOutputStream(JTextArea textArea) {
-    super();
-    this.textArea = textArea;
+  protected PendingEntry(Future<DeflatedEntry> future, long cost) {
+    this.future = future;
+    this.cost = cost;
   }
+}
+
+// A zip entry compressed in memory, or in a temporary file for large entries.
+final class DeflatedEntry {
+  private static final int LARGE_FILE_SIZE = 32 * 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  public final String name;
+  public final long time;
+  public final int method;
+  public final long crc;
+  public final long size;
+  public final long compressedSize;
+  public final byte[] data;
+  public final Path file;
+  public final boolean temporary;
 
-  @Override public void flush() throws IOException {
-    textArea.append(buffer.toString("UTF-8"));
-    buffer.reset();
+  private DeflatedEntry(String name, long time, int method, long crc, long size, byte[] data, Path file, boolean temporary) throws IOException {
+    this.name = name;
+    this.time = time;
+    this.method = method;
+    this.crc = crc;
+    this.size = size;
+    this.compressedSize = Objects.nonNull(data) ? data.length : Files.size(file);
+    this.data = data;
+    this.file = file;
+    this.temporary = temporary;
   }
 
-  @Override public void write(int b) {
-    buffer.write(b);
+  // A small file is read into memory together with its compressed copy,
+  // a large file only needs the stream buffers.
+  public static long memoryCost(long size) {
+    return size > LARGE_FILE_SIZE ? 2L * BUFFER_SIZE : Math.max(2L * size, BUFFER_SIZE);
   }
 
-  @Override public void write(byte[] b, int off, int len) {
-    buffer.write(b, off, len);
+  public void deleteTemporaryFile() throws IOException {
+    if (temporary) {
+      Files.deleteIfExists(file);
+    }
   }
-}
 
-class TextAreaHandler extends StreamHandler {
-  private void configure() {
-    setFormatter(new SimpleFormatter());
+  public static DeflatedEntry deflate(Path path, String name, int level) throws IOException {
+    long time = Files.getLastModifiedTime(path).toMillis();
+    long size = Files.size(path);
+    CRC32 crc = new CRC32();
+    if (size > LARGE_FILE_SIZE) {
+      return deflateLargeFile(path, name, time, level);
+    }
+    byte[] bytes = Files.readAllBytes(path);
+    crc.update(bytes, 0, bytes.length);
+    if (level != Deflater.NO_COMPRESSION) {
+      byte[] compressed = deflate(bytes, level);
+      if (compressed.length < bytes.length) {
+        return new DeflatedEntry(name, time, ZipEntry.DEFLATED, crc.getValue(), bytes.length, compressed, null, false);
+      }
+    }
+    return new DeflatedEntry(name, time, ZipEntry.STORED, crc.getValue(), bytes.length, bytes, null, false);
+  }
+
+  private static byte[] deflate(byte[] bytes, int level) {
+    Deflater deflater = new Deflater(level, true);
     try {
-      setEncoding("UTF-8");
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+      byte[] buf = new byte[Math.min(BUFFER_SIZE, bytes.length + 64)];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buf);
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  // Stored large files are copied directly from the source file by the writer.
+  private static DeflatedEntry deflateLargeFile(Path path, String name, long time, int level) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buf = new byte[BUFFER_SIZE];
+    if (level == Deflater.NO_COMPRESSION) {
+      long size = 0L;
+      try (InputStream in = new CheckedInputStream(Files.newInputStream(path), crc)) {
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+          size += n;
+        }
+      }
+      return new DeflatedEntry(name, time, ZipEntry.STORED, crc.getValue(), size, null, path, false);
+    }
+    Path tmp = Files.createTempFile("zip", ".deflated");
+    Deflater deflater = new Deflater(level, true);
+    long size = 0L;
+    try (InputStream in = new CheckedInputStream(Files.newInputStream(path), crc);
+         OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, BUFFER_SIZE)) {
+      for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+        out.write(buf, 0, n);
+        size += n;
+      }
     } catch (IOException ex) {
+      Files.deleteIfExists(tmp);
+      throw ex;
+    } finally {
+      deflater.end();
+    }
+    return new DeflatedEntry(name, time, ZipEntry.DEFLATED, crc.getValue(), size, null, tmp, true);
+  }
+}
+
+// A minimal zip writer for pre-compressed entries, with ZIP64 extensions
+// for large entries, offsets and more than 65535 entries.
+// @see https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT
+final class ZipChannelWriter implements Closeable {
+  public static final int LOCSIG = 0x04034B50;
+  public static final int CENSIG = 0x02014B50;
+  public static final int ENDSIG = 0x06054B50;
+  public static final int ZIP64_ENDSIG = 0x06064B50;
+  public static final int ZIP64_LOCSIG = 0x07064B50;
+  public static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+  public static final int ZIP64_MAGICCOUNT = 0xFFFF;
+  private static final int UTF8_FLAG = 0x800;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private final FileChannel channel;
+  private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+  private long count;
+
+  protected ZipChannelWriter(Path zip) throws IOException {
+    channel = FileChannel.open(zip, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  public void write(DeflatedEntry entry) throws IOException {
+    long offset = channel.position();
+    byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+    boolean zip64 = entry.size >= ZIP64_MAGICVAL || entry.compressedSize >= ZIP64_MAGICVAL;
+    int dosTime = javaToDosTime(entry.time);
+
+    ByteBuffer loc = allocate(30 + name.length + (zip64 ? 20 : 0));
+    loc.putInt(LOCSIG).putShort((short) (zip64 ? VERSION_ZIP64 : VERSION)).putShort((short) UTF8_FLAG);
+    loc.putShort((short) entry.method).putInt(dosTime).putInt((int) entry.crc);
+    loc.putInt((int) (zip64 ? ZIP64_MAGICVAL : entry.compressedSize));
+    loc.putInt((int) (zip64 ? ZIP64_MAGICVAL : entry.size));
+    loc.putShort((short) name.length).putShort((short) (zip64 ? 20 : 0)).put(name);
+    if (zip64) {
+      loc.putShort((short) 1).putShort((short) 16).putLong(entry.size).putLong(entry.compressedSize);
+    }
+    loc.flip();
+    writeFully(loc);
+    writeData(entry);
+
+    boolean largeSize = entry.size >= ZIP64_MAGICVAL;
+    boolean largeCompressedSize = entry.compressedSize >= ZIP64_MAGICVAL;
+    boolean largeOffset = offset >= ZIP64_MAGICVAL;
+    int extraLength = (largeSize ? 8 : 0) + (largeCompressedSize ? 8 : 0) + (largeOffset ? 8 : 0);
+    int version = extraLength > 0 ? VERSION_ZIP64 : VERSION;
+    ByteBuffer cen = allocate(46 + name.length + (extraLength > 0 ? 4 + extraLength : 0));
+    cen.putInt(CENSIG).putShort((short) version).putShort((short) version).putShort((short) UTF8_FLAG);
+    cen.putShort((short) entry.method).putInt(dosTime).putInt((int) entry.crc);
+    cen.putInt((int) Math.min(entry.compressedSize, ZIP64_MAGICVAL)).putInt((int) Math.min(entry.size, ZIP64_MAGICVAL));
+    cen.putShort((short) name.length).putShort((short) (extraLength > 0 ? 4 + extraLength : 0));
+    cen.putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0);
+    cen.putInt((int) Math.min(offset, ZIP64_MAGICVAL)).put(name);
+    if (extraLength > 0) {
+      cen.putShort((short) 1).putShort((short) extraLength);
+      if (largeSize) {
+        cen.putLong(entry.size);
+      }
+      if (largeCompressedSize) {
+        cen.putLong(entry.compressedSize);
+      }
+      if (largeOffset) {
+        cen.putLong(offset);
+      }
+    }
+    centralDirectory.write(cen.array(), 0, cen.position());
+    count++;
+  }
+
+  private void writeData(DeflatedEntry entry) throws IOException {
+    if (Objects.nonNull(entry.data)) {
+      writeFully(ByteBuffer.wrap(entry.data));
+      return;
+    }
+    try (FileChannel in = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+      long position = 0L;
+      while (position < entry.compressedSize) {
+        position += in.transferTo(position, entry.compressedSize - position, channel);
+      }
+    }
+  }
+
+  @Override public void close() throws IOException {
+    try {
+      long cdOffset = channel.position();
+      long cdSize = centralDirectory.size();
+      writeFully(ByteBuffer.wrap(centralDirectory.toByteArray()));
+      ByteBuffer end = allocate(56 + 20 + 22);
+      if (count >= ZIP64_MAGICCOUNT || cdOffset >= ZIP64_MAGICVAL || cdSize >= ZIP64_MAGICVAL) {
+        long zip64EndOffset = cdOffset + cdSize;
+        end.putInt(ZIP64_ENDSIG).putLong(44L).putShort((short) VERSION_ZIP64).putShort((short) VERSION_ZIP64);
+        end.putInt(0).putInt(0).putLong(count).putLong(count).putLong(cdSize).putLong(cdOffset);
+        end.putInt(ZIP64_LOCSIG).putInt(0).putLong(zip64EndOffset).putInt(1);
+      }
+      short entries = (short) Math.min(count, ZIP64_MAGICCOUNT);
+      end.putInt(ENDSIG).putShort((short) 0).putShort((short) 0).putShort(entries).putShort(entries);
+      end.putInt((int) Math.min(cdSize, ZIP64_MAGICVAL)).putInt((int) Math.min(cdOffset, ZIP64_MAGICVAL));
+      end.putShort((short) 0);
+      end.flip();
+      writeFully(end);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeFully(ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+  }
+
+  private static ByteBuffer allocate(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // @see java.util.zip.ZipUtils#javaToExtendedDosTime(long)
+  public static int javaToDosTime(long time) {
+    LocalDateTime d = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+    int year = d.getYear();
+    if (year < 1980) {
+      return (1 << 21) | (1 << 16);
+    }
+    return (year - 1980) << 25 | d.getMonthValue() << 21 | d.getDayOfMonth() << 16
+        | d.getHour() << 11 | d.getMinute() << 5 | d.getSecond() >> 1;
+  }
+}
+
+// Reads the central directory of a zip file and extracts the entries through
+// a shared FileChannel, FileChannel#read(ByteBuffer, long) and #transferTo(...)
+// do not change the position of the channel, so they can be used concurrently.
+final class ZipChannelReader implements Closeable {
+  private static final int LOCHDR = 30;
+  private static final int CENHDR = 46;
+  private static final int ENDHDR = 22;
+  private static final int ZIP64_LOCHDR = 20;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAP_SIZE = 64 * 1024 * 1024;
+  private final FileChannel channel;
+  private final List<Entry> entries = new ArrayList<>();
+
+  protected ZipChannelReader(Path zip) throws IOException {
+    channel = FileChannel.open(zip, StandardOpenOption.READ);
+    try {
+      readCentralDirectory();
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  public List<Entry> entries() {
+    return entries;
+  }
+
+  private void readCentralDirectory() throws IOException {
+    long size = channel.size();
+    int tailLength = (int) Math.min(size, ENDHDR + 0xFFFF + ZIP64_LOCHDR);
+    ByteBuffer tail = read(size - tailLength, tailLength);
+    int end = tailLength - ENDHDR;
+    while (end >= 0 && tail.getInt(end) != ZipChannelWriter.ENDSIG) {
+      end--;
+    }
+    if (end < 0) {
+      throw new ZipException("END header not found");
+    }
+    long count = tail.getShort(end + 10) & 0xFFFF;
+    long cdSize = tail.getInt(end + 12) & ZipChannelWriter.ZIP64_MAGICVAL;
+    long cdOffset = tail.getInt(end + 16) & ZipChannelWriter.ZIP64_MAGICVAL;
+    int locator = end - ZIP64_LOCHDR;
+    if (locator >= 0 && tail.getInt(locator) == ZipChannelWriter.ZIP64_LOCSIG) {
+      ByteBuffer zip64End = read(tail.getLong(locator + 8), 56);
+      if (zip64End.getInt(0) == ZipChannelWriter.ZIP64_ENDSIG) {
+        count = zip64End.getLong(32);
+        cdSize = zip64End.getLong(40);
+        cdOffset = zip64End.getLong(48);
+      }
+    }
+    if (cdSize > Integer.MAX_VALUE) {
+      throw new ZipException("central directory too large");
+    }
+    MappedByteBuffer cen = channel.map(FileChannel.MapMode.READ_ONLY, cdOffset, cdSize);
+    cen.order(ByteOrder.LITTLE_ENDIAN);
+    int pos = 0;
+    for (long i = 0; i < count; i++) {
+      if (cen.getInt(pos) != ZipChannelWriter.CENSIG) {
+        throw new ZipException("invalid CEN header");
+      }
+      entries.add(readEntry(cen, pos));
+      pos += CENHDR + (cen.getShort(pos + 28) & 0xFFFF) + (cen.getShort(pos + 30) & 0xFFFF) + (cen.getShort(pos + 32) & 0xFFFF);
+    }
+  }
+
+  private static Entry readEntry(ByteBuffer cen, int pos) throws ZipException {
+    int flag = cen.getShort(pos + 8) & 0xFFFF;
+    if ((flag & 1) != 0) {
+      throw new ZipException("encrypted entries are not supported");
+    }
+    int method = cen.getShort(pos + 10) & 0xFFFF;
+    long compressedSize = cen.getInt(pos + 20) & ZipChannelWriter.ZIP64_MAGICVAL;
+    long size = cen.getInt(pos + 24) & ZipChannelWriter.ZIP64_MAGICVAL;
+    int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+    int extraLength = cen.getShort(pos + 30) & 0xFFFF;
+    long offset = cen.getInt(pos + 42) & ZipChannelWriter.ZIP64_MAGICVAL;
+    byte[] name = new byte[nameLength];
+    for (int i = 0; i < nameLength; i++) {
+      name[i] = cen.get(pos + CENHDR + i);
+    }
+    int extra = pos + CENHDR + nameLength;
+    int extraEnd = extra + extraLength;
+    while (extra + 4 <= extraEnd) {
+      int tag = cen.getShort(extra) & 0xFFFF;
+      int length = cen.getShort(extra + 2) & 0xFFFF;
+      if (tag == 1) {
+        int p = extra + 4;
+        if (size == ZipChannelWriter.ZIP64_MAGICVAL) {
+          size = cen.getLong(p);
+          p += 8;
+        }
+        if (compressedSize == ZipChannelWriter.ZIP64_MAGICVAL) {
+          compressedSize = cen.getLong(p);
+          p += 8;
+        }
+        if (offset == ZipChannelWriter.ZIP64_MAGICVAL) {
+          offset = cen.getLong(p);
+        }
+      }
+      extra += 4 + length;
+    }
+    return new Entry(new String(name, StandardCharsets.UTF_8), method, size, compressedSize, offset);
+  }
+
+  public void extract(Entry entry, Path path) throws IOException {
+    ByteBuffer loc = read(entry.offset, LOCHDR);
+    if (loc.getInt(0) != ZipChannelWriter.LOCSIG) {
+      throw new ZipException("invalid LOC header: " + entry.name);
+    }
+    long dataOffset = entry.offset + LOCHDR + (loc.getShort(26) & 0xFFFF) + (loc.getShort(28) & 0xFFFF);
+    Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    try (FileChannel out = FileChannel.open(path, options)) {
+      if (entry.method == ZipEntry.STORED) {
+        long position = 0L;
+        while (position < entry.size) {
+          position += channel.transferTo(dataOffset + position, entry.size - position, out);
+        }
+      } else if (entry.method == ZipEntry.DEFLATED) {
+        inflate(entry, dataOffset, out);
+      } else {
+        throw new ZipException("unsupported compression method: " + entry.name);
+      }
+    }
+  }
+
+  private void inflate(Entry entry, long dataOffset, FileChannel out) throws IOException {
+    Inflater inflater = new Inflater(true);
+    byte[] input = new byte[BUFFER_SIZE];
+    byte[] output = new byte[BUFFER_SIZE];
+    try {
+      ByteBuffer window = ByteBuffer.allocate(0);
+      long position = 0L;
+      boolean dummy = false;
+      while (!inflater.finished()) {
+        if (inflater.needsInput()) {
+          if (!window.hasRemaining() && position < entry.compressedSize) {
+            window = map(dataOffset + position, entry.compressedSize - position);
+            position += window.remaining();
+          }
+          if (window.hasRemaining()) {
+            int length = Math.min(BUFFER_SIZE, window.remaining());
+            window.get(input, 0, length);
+            inflater.setInput(input, 0, length);
+          } else if (dummy) {
+            throw new ZipException("unexpected end of entry: " + entry.name);
+          } else {
+            // the nowrap Inflater may need an extra dummy byte at the end of the input
+            input[0] = 0;
+            inflater.setInput(input, 0, 1);
+            dummy = true;
+          }
+        }
+        int n = inflater.inflate(output);
+        if (n == 0 && inflater.needsDictionary()) {
+          throw new ZipException("invalid deflated entry: " + entry.name);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(output, 0, n);
+        while (buf.hasRemaining()) {
+          out.write(buf);
+        }
+      }
+    } catch (DataFormatException ex) {
+      throw new ZipException(ex.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+  // Small entries are read into the heap, larger ones are memory-mapped.
+  private ByteBuffer map(long position, long remaining) throws IOException {
+    if (remaining <= BUFFER_SIZE) {
+      return read(position, (int) remaining);
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, remaining));
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, position + buf.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buf.flip();
+    return buf;
+  }
+
+  @Override public void close() throws IOException {
+    channel.close();
+  }
+
+  static final class Entry {
+    public final String name;
+    public final int method;
+    public final long size;
+    public final long compressedSize;
+    public final long offset;
+
+    protected Entry(String name, int method, long size, long compressedSize, long offset) {
+      this.name = name;
+      this.method = method;
+      this.size = size;
+      this.compressedSize = compressedSize;
+      this.offset = offset;
+    }
+  }
+}
+
+// A log view that renders the last lines from a fixed-capacity LineStore
+// instead of a growing Document, so memory stays bounded however long it runs.
+class LogConsole extends JComponent implements Scrollable {
+  private static final int FLUSH_INTERVAL = 40; // milliseconds
+  private final LogRingBuffer buffer;
+  private final LineStore lines;
+  private final Timer timer = new Timer(FLUSH_INTERVAL, e -> flushBuffer());
+  private final List<String> batch = new ArrayList<>();
+  private final LongAdder dropped = new LongAdder();
+
+  protected LogConsole(int maxLines) {
+    super();
+    this.buffer = new LogRingBuffer(Integer.highestOneBit(Math.max(1024, maxLines)) * 2);
+    this.lines = new LineStore(maxLines);
+  }
+
+  @Override public void setFont(Font font) {
+    super.setFont(font);
+    if (Objects.nonNull(lines)) {
+      FontMetrics fm = getFontMetrics(font);
+      lines.measure(fm::stringWidth);
+    }
+  }
+
+  @Override public void updateUI() {
+    super.updateUI();
+    setFont(new Font(Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextArea.font").getSize()));
+    setForeground(UIManager.getColor("TextArea.foreground"));
+    setBackground(UIManager.getColor("TextArea.background"));
+    setOpaque(true);
+  }
+
+  @Override public void addNotify() {
+    super.addNotify();
+    timer.start();
+  }
+
+  @Override public void removeNotify() {
+    timer.stop();
+    super.removeNotify();
+  }
+
+  // Thread safe. When the buffer is full, the lines are moved into the
+  // LineStore first, which evicts the oldest lines instead of the new ones.
+  // A producer thread waits for the EDT to do that, the EDT does it itself.
+  public void append(String line) {
+    while (!buffer.offer(line)) {
+      if (EventQueue.isDispatchThread()) {
+        flushBuffer();
+        continue;
+      }
       try {
-        setEncoding(null);
-      } catch (IOException ex2) {
-        // doing a setEncoding with null should always work.
-        assert false;
+        EventQueue.invokeAndWait(this::flushBuffer);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        dropped.increment();
+        return;
+      } catch (InvocationTargetException ex) {
+        throw new IllegalStateException(ex.getCause());
       }
     }
   }
 
-  protected TextAreaHandler(OutputStream os) {
+  public void clear() {
+    lines.clear();
+    revalidate();
+    repaint();
+  }
+
+  // Moves all buffered lines into the LineStore, at most once per timer tick.
+  private void flushBuffer() {
+    buffer.drainTo(batch);
+    long count = dropped.sumThenReset();
+    if (count > 0) {
+      batch.add(String.format("... %d lines dropped", count));
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    boolean atBottom = isScrolledToBottom();
+    FontMetrics fm = getFontMetrics(getFont());
+    batch.forEach(line -> lines.add(line, fm.stringWidth(line)));
+    batch.clear();
+    revalidate();
+    repaint();
+    if (atBottom) {
+      EventQueue.invokeLater(() -> scrollRectToVisible(new Rectangle(getVisibleRect().x, getHeight() - 1, 1, 1)));
+    }
+  }
+
+  private boolean isScrolledToBottom() {
+    Rectangle r = getVisibleRect();
+    return r.y + r.height >= getHeight() - getLineHeight();
+  }
+
+  private int getLineHeight() {
+    return getFontMetrics(getFont()).getHeight();
+  }
+
+  @Override public Dimension getPreferredSize() {
+    Insets i = getInsets();
+    return new Dimension(i.left + i.right + lines.getMaxWidth(), i.top + i.bottom + lines.size() * getLineHeight());
+  }
+
+  @Override protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (isOpaque()) {
+      g.setColor(getBackground());
+      g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    }
+    Insets i = getInsets();
+    FontMetrics fm = g.getFontMetrics(getFont());
+    int lh = fm.getHeight();
+    int first = Math.max(0, (clip.y - i.top) / lh);
+    int last = Math.min(lines.size() - 1, (clip.y + clip.height - i.top) / lh);
+    g.setFont(getFont());
+    g.setColor(getForeground());
+    for (int row = first; row <= last; row++) {
+      g.drawString(lines.get(row), i.left, i.top + row * lh + fm.getAscent());
+    }
+  }
+
+  @Override public Dimension getPreferredScrollableViewportSize() {
+    return getPreferredSize();
+  }
+
+  @Override public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.VERTICAL ? getLineHeight() : 10;
+  }
+
+  @Override public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+  }
+
+  @Override public boolean getScrollableTracksViewportWidth() {
+    Container p = SwingUtilities.getUnwrappedParent(this);
+    return p instanceof JViewport && p.getWidth() > getPreferredSize().width;
+  }
+
+  @Override public boolean getScrollableTracksViewportHeight() {
+    Container p = SwingUtilities.getUnwrappedParent(this);
+    return p instanceof JViewport && p.getHeight() > getPreferredSize().height;
+  }
+}
+
+// A bounded, lock-free multi-producer single-consumer queue of lines.
+// A slot is released by the consumer before the head moves past it, so a
+// producer that sees enough room can always claim an empty slot.
+class LogRingBuffer {
+  private final AtomicReferenceArray<String> slots;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  protected LogRingBuffer(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    slots = new AtomicReferenceArray<>(capacity);
+    mask = capacity - 1;
+  }
+
+  public boolean offer(String line) {
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() >= slots.length()) {
+        return false;
+      }
+    } while (!tail.compareAndSet(t, t + 1));
+    slots.lazySet((int) t & mask, line);
+    return true;
+  }
+
+  // Called only from the consumer thread.
+  public void drainTo(Collection<String> c) {
+    long h = head.get();
+    long t = tail.get();
+    while (h < t) {
+      int idx = (int) h & mask;
+      String line = slots.get(idx);
+      if (Objects.isNull(line)) {
+        break; // claimed, but not yet published by the producer
+      }
+      slots.lazySet(idx, null);
+      c.add(line);
+      h++;
+      head.lazySet(h);
+    }
+  }
+}
+
+// A circular array of the last maxLines lines and their widths in pixels.
+class LineStore {
+  private final String[] lines;
+  private final int[] widths;
+  private int start;
+  private int size;
+  private int maxWidth;
+  private boolean maxWidthValid = true;
+
+  protected LineStore(int maxLines) {
+    lines = new String[maxLines];
+    widths = new int[maxLines];
+  }
+
+  public void add(String line, int width) {
+    int idx;
+    if (size < lines.length) {
+      idx = (start + size) % lines.length;
+      size++;
+    } else {
+      idx = start;
+      start = (start + 1) % lines.length;
+      // the widest line may have been evicted
+      maxWidthValid &= widths[idx] < maxWidth;
+    }
+    lines[idx] = line;
+    widths[idx] = width;
+    maxWidth = Math.max(maxWidth, width);
+  }
+
+  public int getMaxWidth() {
+    if (!maxWidthValid) {
+      maxWidth = 0;
+      for (int i = 0; i < size; i++) {
+        maxWidth = Math.max(maxWidth, widths[(start + i) % lines.length]);
+      }
+      maxWidthValid = true;
+    }
+    return maxWidth;
+  }
+
+  public void measure(ToIntFunction<String> width) {
+    for (int i = 0; i < size; i++) {
+      int idx = (start + i) % lines.length;
+      widths[idx] = width.applyAsInt(lines[idx]);
+    }
+    maxWidthValid = false;
+  }
+
+  public String get(int index) {
+    return lines[(start + index) % lines.length];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(lines, null);
+    start = 0;
+    size = 0;
+    maxWidth = 0;
+    maxWidthValid = true;
+  }
+}
+
+class LogConsoleHandler extends Handler {
+  private final LogConsole console;
+
+  protected LogConsoleHandler(LogConsole console) {
     super();
-    configure();
-    setOutputStream(os);
+    this.console = console;
+    setFormatter(new SimpleFormatter());
+  }
+
+  @Override public void publish(LogRecord record) {
+    if (!isLoggable(record)) {
+      return;
+    }
+    String text;
+    try {
+      text = getFormatter().format(record);
+    } catch (IllegalArgumentException ex) {
+      reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+      return;
+    }
+    int pos = 0;
+    int length = text.length();
+    while (pos < length) {
+      int end = text.indexOf('\n', pos);
+      if (end < 0) {
+        end = length;
+      }
+      int lineEnd = end > pos && text.charAt(end - 1) == '\r' ? end - 1 : end;
+      console.append(text.substring(pos, lineEnd));
+      pos = end + 1;
+    }
   }
 
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method publish overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void publish(LogRecord record) {
-    super.publish(record);
-    flush();
+  @Override public void flush() {
+    /* the console is flushed by its own timer */
   }
 
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method close overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void close() {
-    flush();
+  @Override public void close() {
+    /* nothing to release */
   }
 }
@@ -12,6 +12,11 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -66,15 +71,18 @@ public final class MainPanel extends JPanel {
 
 class ZoomAndPanePanel extends JPanel {
   private final AffineTransform zoomTransform = new AffineTransform();
-  private final transient Image img;
+  // private final transient Image img;
+  private final transient TilePyramid pyramid;
   private final Rectangle imageRect;
   private transient ZoomHandler handler;
   private transient DragScrollListener listener;
 
   protected ZoomAndPanePanel(Image img) {
     super();
-    this.img = img;
+    // this.img = img;
     this.imageRect = new Rectangle(img.getWidth(this), img.getHeight(this));
+    this.pyramid = new TilePyramid(img, TilePyramid.DEFAULT_CACHE_BYTES);
+    pyramid.build(this::repaint);
   }
 
   @Override protected void paintComponent(Graphics g) {
@@ -93,7 +101,8 @@ class ZoomAndPanePanel extends JPanel {
 
     // or use: Graphics2D#drawImage(Image, AffineTransform, ImageObserver)
     // https://docs.oracle.com/javase/8/docs/api/java/awt/Graphics2D.html#drawImage-java.awt.Image-java.awt.geom.AffineTransform-java.awt.image.ImageObserver-
-    g2.drawImage(img, zoomTransform, this); // or: g2.drawRenderedImage((RenderedImage) img, zoomTransform);
+    // g2.drawImage(img, zoomTransform, this); // or: g2.drawRenderedImage((RenderedImage) img, zoomTransform);
+    pyramid.paint(g2, zoomTransform.getScaleX());
     g2.fill(zoomTransform.createTransformedShape(r));
 
     // BAD EXAMPLE
@@ -153,6 +162,139 @@ class ZoomAndPanePanel extends JPanel {
   }
 }
 
+// A mipmap of the image: level 0 is the image itself and every further
+// level halves the previous one, down to a single tile. The levels are built
+// in the background; paint() picks the smallest level that still has at
+// least one pixel per screen pixel and draws only the tiles in the clip, so
+// a frame costs about the same whatever the image size.
+// The tiles are copied out of the levels into compatible images, which
+// Java2D can keep in video memory, and kept in an LRU capped by bytes.
+class TilePyramid {
+  public static final int TILE_SIZE = 256;
+  public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+  private final BufferedImage[] levels;
+  private volatile int builtLevels = 1;
+  private final long maxCacheBytes;
+  private long cacheBytes;
+  private final Map<Long, BufferedImage> cache = new LinkedHashMap<>(64, .75f, true);
+
+  protected TilePyramid(Image img, long maxCacheBytes) {
+    this.maxCacheBytes = maxCacheBytes;
+    BufferedImage src = toBufferedImage(img);
+    int count = 1;
+    for (int w = src.getWidth(), h = src.getHeight(); w > TILE_SIZE || h > TILE_SIZE; w = (w + 1) / 2, h = (h + 1) / 2) {
+      count++;
+    }
+    levels = new BufferedImage[count];
+    levels[0] = src;
+  }
+
+  private static BufferedImage toBufferedImage(Image img) {
+    if (img instanceof BufferedImage) {
+      return (BufferedImage) img;
+    }
+    BufferedImage bi = new BufferedImage(img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = bi.createGraphics();
+    g2.drawImage(img, 0, 0, null);
+    g2.dispose();
+    return bi;
+  }
+
+  // Builds the smaller levels one by one on a worker thread and calls
+  // onLevel on the EDT each time one becomes available.
+  public void build(Runnable onLevel) {
+    new SwingWorker<Void, Integer>() {
+      @Override protected Void doInBackground() {
+        for (int i = 1; i < levels.length; i++) {
+          BufferedImage prev = levels[i - 1];
+          int w = (prev.getWidth() + 1) / 2;
+          int h = (prev.getHeight() + 1) / 2;
+          BufferedImage level = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+          Graphics2D g2 = level.createGraphics();
+          g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+          g2.drawImage(prev, 0, 0, w, h, null);
+          g2.dispose();
+          levels[i] = level;
+          builtLevels = i + 1;
+          publish(i);
+        }
+        return null;
+      }
+
+      @Override protected void process(List<Integer> chunks) {
+        onLevel.run();
+      }
+    }.execute();
+  }
+
+  public int getLevelCount() {
+    return builtLevels;
+  }
+
+  // scale is the zoom factor of level 0, the image is drawn at the origin.
+  public void paint(Graphics2D g2, double scale) {
+    int levelIndex = 0;
+    while (levelIndex + 1 < builtLevels && scale * (1 << levelIndex + 1) <= 1d) {
+      levelIndex++;
+    }
+    BufferedImage level = levels[levelIndex];
+    double s = scale * (1 << levelIndex);
+    Rectangle clip = Optional.ofNullable(g2.getClipBounds())
+        .orElseGet(() -> new Rectangle((int) Math.ceil(level.getWidth() * s), (int) Math.ceil(level.getHeight() * s)));
+    int cols = (level.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+    int rows = (level.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+    int col0 = Math.max(0, (int) (clip.x / s / TILE_SIZE));
+    int row0 = Math.max(0, (int) (clip.y / s / TILE_SIZE));
+    int col1 = Math.min(cols - 1, (int) ((clip.x + clip.width) / s / TILE_SIZE));
+    int row1 = Math.min(rows - 1, (int) ((clip.y + clip.height) / s / TILE_SIZE));
+    Graphics2D g = (Graphics2D) g2.create();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    for (int row = row0; row <= row1; row++) {
+      for (int col = col0; col <= col1; col++) {
+        BufferedImage tile = getTile(g, levelIndex, col, row);
+        // round the tile edges the same way on both sides, so they abut
+        int x0 = (int) Math.floor(col * TILE_SIZE * s);
+        int y0 = (int) Math.floor(row * TILE_SIZE * s);
+        int x1 = (int) Math.floor((col * TILE_SIZE + tile.getWidth()) * s);
+        int y1 = (int) Math.floor((row * TILE_SIZE + tile.getHeight()) * s);
+        g.drawImage(tile, x0, y0, x1 - x0, y1 - y0, null);
+      }
+    }
+    g.dispose();
+  }
+
+  private BufferedImage getTile(Graphics2D g, int levelIndex, int col, int row) {
+    long key = (long) levelIndex << 48 | (long) row << 24 | col;
+    BufferedImage tile = cache.get(key);
+    if (Objects.isNull(tile)) {
+      BufferedImage level = levels[levelIndex];
+      int x = col * TILE_SIZE;
+      int y = row * TILE_SIZE;
+      int w = Math.min(TILE_SIZE, level.getWidth() - x);
+      int h = Math.min(TILE_SIZE, level.getHeight() - y);
+      tile = g.getDeviceConfiguration().createCompatibleImage(w, h, level.getTransparency());
+      Graphics2D tg = tile.createGraphics();
+      tg.setComposite(AlphaComposite.Src);
+      tg.drawImage(level, 0, 0, w, h, x, y, x + w, y + h, null);
+      tg.dispose();
+      cache.put(key, tile);
+      cacheBytes += (long) w * h * 4;
+      evict();
+    }
+    return tile;
+  }
+
+  private void evict() {
+    Iterator<BufferedImage> it = cache.values().iterator();
+    // always keep the tile that was just added
+    while (cacheBytes > maxCacheBytes && cache.size() > 1 && it.hasNext()) {
+      BufferedImage t = it.next();
+      cacheBytes -= (long) t.getWidth() * t.getHeight() * 4;
+      it.remove();
+    }
+  }
+}
+
 class DragScrollListener extends MouseAdapter {
   private final Cursor defCursor = Cursor.getDefaultCursor();
   private final Cursor hndCursor = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);